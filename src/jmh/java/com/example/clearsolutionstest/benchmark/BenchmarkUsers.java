@@ -0,0 +1,21 @@
+package com.example.clearsolutionstest.benchmark;
+
+import com.example.clearsolutionstest.entity.User;
+import java.util.Date;
+
+final class BenchmarkUsers {
+
+  private BenchmarkUsers() {
+  }
+
+  static User newUser(String emailPrefix, int birthYear) {
+    User user = new User();
+    user.setEmail(emailPrefix + "@example.com");
+    user.setFirstname("John");
+    user.setLastname("Doe");
+    user.setBirthDate(new Date(birthYear - 1900, 0, 1));
+    user.setAddress("1 Main Street, Springfield");
+    user.setPhoneNumber("+1-202-555-0100");
+    return user;
+  }
+}
@@ -0,0 +1,96 @@
+package com.example.clearsolutionstest.benchmark;
+
+import com.example.clearsolutionstest.ClearSolutionsTestApplication;
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.service.UserService;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+/**
+ * Drives the HTTP API from many concurrent clients, once with the servlet controller and once with
+ * the {@code async} profile. Throughput mode gives requests per second and SampleTime mode reports
+ * the latency percentiles, including p0.99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(256)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class UserApiLoadBenchmark {
+
+  private static final int SEEDED_USERS = 5_000;
+
+  @Param({"servlet", "async"})
+  private String stack;
+
+  @Param({"50"})
+  private int tomcatThreads;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient client;
+  private HttpRequest searchRequest;
+  private HttpRequest getRequest;
+
+  @Setup
+  public void startApplication() {
+    context = new SpringApplicationBuilder(ClearSolutionsTestApplication.class)
+        .profiles("async".equals(stack) ? new String[] {"async"} : new String[0])
+        .properties("server.port=0", "server.tomcat.threads.max=" + tomcatThreads,
+            "server.tomcat.accept-count=1000", "users.rate-limit.enabled=false",
+            "spring.datasource.url=jdbc:h2:mem:load-" + stack, "logging.level.root=WARN")
+        .run();
+
+    List<User> users = new ArrayList<>(SEEDED_USERS);
+    for (int i = 0; i < SEEDED_USERS; i++) {
+      users.add(BenchmarkUsers.newUser("load" + i, 1950 + i % 50));
+    }
+    Long userId = context.getBean(UserService.class).createAll(users).get(0).getId();
+
+    String baseUrl = "http://localhost:"
+        + context.getBean(Environment.class).getProperty("local.server.port") + "/users";
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    searchRequest = HttpRequest.newBuilder(
+        URI.create(baseUrl + "/search?from=1970-01-01&to=1980-01-01&size=20&pagination=SLICE"))
+        .build();
+    getRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/" + userId)).build();
+  }
+
+  @TearDown
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public int search() throws IOException, InterruptedException {
+    return client.send(searchRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+
+  @Benchmark
+  public int getUser() throws IOException, InterruptedException {
+    return client.send(getRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+}
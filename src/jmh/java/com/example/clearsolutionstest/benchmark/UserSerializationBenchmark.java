@@ -0,0 +1,96 @@
+package com.example.clearsolutionstest.benchmark;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.json.CompactPageJsonSerializer;
+import com.example.clearsolutionstest.json.UserJsonSerializer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Serializes a user and a search page in each response format. Page scores are per user, and
+ * the setup prints the encoded size of each per user. {@code JSON_BEAN} is the bean serializer
+ * output that responses used before the tuned serializers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UserSerializationBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"JSON_BEAN", "JSON", "CBOR", "SMILE"})
+  public String format;
+
+  private ObjectMapper objectMapper;
+  private User user;
+  private Page<User> page;
+
+  @Setup
+  public void setUp() throws JsonProcessingException {
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    if (!format.equals("JSON_BEAN")) {
+      builder.serializers(new UserJsonSerializer(), new CompactPageJsonSerializer());
+    }
+    if (format.equals("CBOR")) {
+      builder.factory(new CBORFactory());
+    } else if (format.equals("SMILE")) {
+      builder.factory(new SmileFactory());
+    }
+    objectMapper = builder.build();
+    user = storedUser("john.doe", 1L);
+
+    List<User> users = new ArrayList<>(PAGE_SIZE);
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      users.add(storedUser("user" + i, i));
+    }
+    page = new PageImpl<>(users, PageRequest.of(0, PAGE_SIZE), 1_000);
+
+    System.out.printf("%n%s: %d bytes per user, %.1f bytes per user in a page of %d%n", format,
+        serializeUser().length, (double) serializeUserPage().length / PAGE_SIZE, PAGE_SIZE);
+  }
+
+  /** Search responses carry users loaded by JPA, whose birth dates are {@code java.sql.Date}. */
+  private static User storedUser(String emailPrefix, long id) {
+    User user = BenchmarkUsers.newUser(emailPrefix, 1990);
+    user.setId(id);
+    user.setBirthDate(new java.sql.Date(user.getBirthDate().getTime()));
+    return user;
+  }
+
+  @Benchmark
+  public byte[] serializeUser() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(user);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PAGE_SIZE)
+  public byte[] serializeUserPage() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(page);
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.clearsolutionstest.benchmark;
+
+import com.example.clearsolutionstest.ClearSolutionsTestApplication;
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.service.UserService;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserServiceBenchmark {
+
+  private static final int SEEDED_USERS = 10_000;
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private Long existingUserId;
+  private Date fromDate;
+  private Date toDate;
+  private Pageable firstPage;
+
+  @Setup
+  public void startApplication() {
+    context = new SpringApplicationBuilder(ClearSolutionsTestApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties("spring.datasource.url=jdbc:h2:mem:benchmark", "logging.level.root=WARN")
+        .run();
+    userService = context.getBean(UserService.class);
+
+    List<User> users = new ArrayList<>(SEEDED_USERS);
+    for (int i = 0; i < SEEDED_USERS; i++) {
+      users.add(BenchmarkUsers.newUser("seed" + i, 1950 + i % 50));
+    }
+    existingUserId = userService.createAll(users).get(0).getId();
+    fromDate = new Date(1970 - 1900, 0, 1);
+    toDate = new Date(1980 - 1900, 0, 1);
+    firstPage = PageRequest.of(0, 20);
+  }
+
+  @TearDown
+  public void stopApplication() {
+    context.close();
+  }
+
+  @Benchmark
+  public User create() {
+    return userService.create(BenchmarkUsers.newUser("create" + sequence.incrementAndGet(), 1990));
+  }
+
+  @Benchmark
+  public User update() {
+    return userService.update(existingUserId,
+        BenchmarkUsers.newUser("update" + sequence.incrementAndGet(), 1990));
+  }
+
+  @Benchmark
+  public Page<User> findUsersByBirthDateRange() {
+    return userService.findUsersByBirthDateRange(fromDate, toDate, firstPage);
+  }
+}
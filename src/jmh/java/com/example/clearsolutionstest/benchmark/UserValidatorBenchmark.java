@@ -0,0 +1,72 @@
+package com.example.clearsolutionstest.benchmark;
+
+import com.example.clearsolutionstest.config.ValidationConfig;
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.validation.RegexEmailMatcher;
+import com.example.clearsolutionstest.validation.UserValidator;
+import com.example.clearsolutionstest.validation.UserViolation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UserValidatorBenchmark {
+
+  @Param({"regex", "single-pass"})
+  private String engine;
+
+  private UserValidator validator;
+  private User validUser;
+  private User invalidUser;
+
+  @Setup
+  public void setUp() {
+    validator = new UserValidator(
+        new ValidationConfig().emailMatcher(engine, RegexEmailMatcher.DEFAULT_REGEXP),
+        new ValidationConfig().birthDateCutoffs(18, ""), new SimpleMeterRegistry());
+    validUser = BenchmarkUsers.newUser("john.doe", 1990);
+    invalidUser = BenchmarkUsers.newUser("john..doe", 2020);
+  }
+
+  @Benchmark
+  public Errors validateValidUser() {
+    Errors errors = new BeanPropertyBindingResult(validUser, "user");
+    validator.validate(validUser, errors);
+    return errors;
+  }
+
+  @Benchmark
+  public Errors validateInvalidUser() {
+    Errors errors = new BeanPropertyBindingResult(invalidUser, "user");
+    validator.validate(invalidUser, errors);
+    return errors;
+  }
+
+  @Benchmark
+  public List<UserViolation> checkValidUser() {
+    return validator.check(validUser);
+  }
+
+  @Benchmark
+  public List<UserViolation> checkInvalidUser() {
+    return validator.check(invalidUser);
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.clearsolutionstest.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+@Configuration
+@Profile("async")
+public class AsyncConfig {
+
+  @Bean(destroyMethod = "shutdown")
+  public ThreadPoolExecutor usersExecutor(@Value("${users.async.pool-size}") int poolSize,
+      @Value("${users.async.queue-capacity}") int queueCapacity, MeterRegistry meterRegistry) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+        new CustomizableThreadFactory("users-async-"), new ThreadPoolExecutor.AbortPolicy());
+    new ExecutorServiceMetrics(executor, "users.async", Collections.emptyList())
+        .bindTo(meterRegistry);
+    return executor;
+  }
+}
@@ -0,0 +1,52 @@
+package com.example.clearsolutionstest.config;
+
+import com.example.clearsolutionstest.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+  @Bean
+  public Cache<Long, User> userCache(@Value("${users.cache.maximum-size}") long maximumSize,
+      @Value("${users.cache.expire-after-write}") Duration expireAfterWrite,
+      MeterRegistry meterRegistry) {
+    Cache<Long, User> cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build();
+    return CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+  }
+
+  @Bean
+  public Cache<Integer, Long> birthYearCountCache(
+      @Value("${users.search.count-cache.expire-after-write}") Duration expireAfterWrite,
+      MeterRegistry meterRegistry) {
+    Cache<Integer, Long> cache = Caffeine.newBuilder()
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build();
+    return CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.birth-year-counts");
+  }
+
+  @Bean
+  public Cache<List<Object>, Object> searchResultCache(
+      @Value("${users.search.result-cache.maximum-size}") long maximumSize,
+      @Value("${users.search.result-cache.expire-after-write}") Duration expireAfterWrite,
+      MeterRegistry meterRegistry) {
+    Cache<List<Object>, Object> cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build();
+    return CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.search-results");
+  }
+}
@@ -0,0 +1,92 @@
+package com.example.clearsolutionstest.config;
+
+import com.example.clearsolutionstest.datasource.DataSourcePools;
+import com.example.clearsolutionstest.datasource.LocalReplicaSync;
+import com.example.clearsolutionstest.datasource.ReplicaLagMonitor;
+import com.example.clearsolutionstest.datasource.ReplicaReadAspect;
+import com.example.clearsolutionstest.datasource.ReplicaRoutingDataSource;
+import com.example.clearsolutionstest.service.UserChangeFeed;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the single datasource with one that routes read-only service transactions to replica
+ * pools. Replicas share the primary's driver and credentials.
+ */
+@Configuration
+@ConditionalOnProperty(name = "users.datasource.replicas.enabled", havingValue = "true")
+public class DataSourceConfig {
+
+  @Bean(destroyMethod = "close")
+  public DataSourcePools dataSourcePools(DataSourceProperties properties,
+      @Value("${users.datasource.replicas.urls}") List<String> replicaUrls) {
+    HikariDataSource primary = properties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class).build();
+    primary.setPoolName("primary");
+
+    Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+    for (String url : replicaUrls) {
+      HikariDataSource replica = DataSourceBuilder.create()
+          .type(HikariDataSource.class)
+          .driverClassName(properties.determineDriverClassName())
+          .url(url)
+          .username(properties.determineUsername())
+          .password(properties.determinePassword())
+          .build();
+      replica.setPoolName("replica-" + replicas.size());
+      replicas.put(replica.getPoolName(), replica);
+    }
+    if (replicas.isEmpty()) {
+      throw new IllegalArgumentException("'users.datasource.replicas.urls' must not be empty.");
+    }
+    return new DataSourcePools(primary, replicas);
+  }
+
+  @Bean
+  public ReplicaLagMonitor replicaLagMonitor(DataSourcePools pools,
+      @Value("${users.datasource.replicas.max-lag}") Duration maxLag,
+      @Value("${users.datasource.replicas.heartbeat-interval}") Duration heartbeatInterval) {
+    return new ReplicaLagMonitor(pools, maxLag, heartbeatInterval);
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourcePools pools,
+      ReplicaLagMonitor lagMonitor) {
+    return new ReplicaRoutingDataSource(pools, lagMonitor);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+
+  @Bean
+  public ReplicaReadAspect replicaReadAspect() {
+    return new ReplicaReadAspect();
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "users.datasource.replicas.local-sync.enabled",
+      havingValue = "true")
+  public LocalReplicaSync localReplicaSync(DataSourcePools pools, UserChangeFeed changeFeed,
+      MeterRegistry meterRegistry,
+      @Value("${users.datasource.replicas.local-sync.interval}") Duration interval,
+      @Value("${users.changes.max-batch}") int maxBatch,
+      @Value("${users.batch.size}") int batchSize) {
+    return new LocalReplicaSync(pools, changeFeed, meterRegistry, interval, maxBatch, batchSize);
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.clearsolutionstest.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Lets clients ask for CBOR ({@code application/cbor}) or Smile
+ * ({@code application/x-jackson-smile}) through {@code Accept} and {@code Content-Type}. The
+ * converters use the application's Jackson settings and serializers, and come after the JSON
+ * converter so that requests accepting anything still get JSON.
+ */
+@Configuration
+public class MessageConverterConfig implements WebMvcConfigurer {
+
+  private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+  public MessageConverterConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+    this.objectMapperBuilder = objectMapperBuilder;
+  }
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    // Spring adds its own CBOR and Smile converters when the formats are on the classpath, but
+    // those ignore the application's Jackson configuration.
+    converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+        || converter instanceof MappingJackson2SmileHttpMessageConverter);
+    converters.add(new MappingJackson2CborHttpMessageConverter(objectMapper(new CBORFactory())));
+    converters.add(new MappingJackson2SmileHttpMessageConverter(objectMapper(new SmileFactory())));
+  }
+
+  private ObjectMapper objectMapper(JsonFactory factory) {
+    return objectMapperBuilder.getObject().factory(factory).build();
+  }
+}
@@ -0,0 +1,45 @@
+package com.example.clearsolutionstest.config;
+
+import com.example.clearsolutionstest.ratelimit.RateLimit;
+import com.example.clearsolutionstest.ratelimit.RateLimitedEndpoint;
+import com.example.clearsolutionstest.ratelimit.RateLimitingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.EnumMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@ConditionalOnProperty(name = "users.rate-limit.enabled", havingValue = "true",
+    matchIfMissing = true)
+public class RateLimitConfig {
+
+  @Bean
+  public FilterRegistrationBean<RateLimitingFilter> rateLimitingFilter(Environment environment,
+      @Value("${users.rate-limit.max-concurrent-requests}") int maxConcurrentRequests,
+      @Value("${users.rate-limit.max-concurrent-bulk-requests}") int maxConcurrentBulkRequests,
+      @Value("${users.rate-limit.client-header}") String clientHeader,
+      @Value("${users.rate-limit.clients-per-address}") int clientsPerAddress,
+      @Value("${users.rate-limit.max-clients}") long maxClients,
+      MeterRegistry meterRegistry) {
+    Map<RateLimitedEndpoint, RateLimit> limits = new EnumMap<>(RateLimitedEndpoint.class);
+    for (RateLimitedEndpoint endpoint : RateLimitedEndpoint.values()) {
+      String prefix = "users.rate-limit." + endpoint.getKey();
+      limits.put(endpoint, new RateLimit(
+          environment.getProperty(prefix + ".permits-per-second", Double.class, 0d),
+          environment.getProperty(prefix + ".burst", Integer.class, 1)));
+    }
+
+    FilterRegistrationBean<RateLimitingFilter> registration = new FilterRegistrationBean<>(
+        new RateLimitingFilter(limits, maxConcurrentRequests, maxConcurrentBulkRequests,
+            clientHeader, clientsPerAddress, maxClients, meterRegistry, System::nanoTime));
+    registration.addUrlPatterns("/users", "/users/*");
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    return registration;
+  }
+}
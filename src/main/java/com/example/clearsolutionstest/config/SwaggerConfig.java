@@ -1,13 +1,26 @@
 package com.example.clearsolutionstest.config;
 
+import com.example.clearsolutionstest.response.CompactPage;
+import com.fasterxml.classmate.TypeResolver;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 import springfox.documentation.builders.ApiInfoBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.AlternateTypeRules;
+import springfox.documentation.schema.WildcardType;
 import springfox.documentation.service.ApiInfo;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Configuration
@@ -16,10 +29,40 @@ public class SwaggerConfig {
 
 
   @Bean
-  public Docket api() {
+  public Docket api(TypeResolver typeResolver) {
     return new Docket(DocumentationType.SWAGGER_2).select()
         .apis(RequestHandlerSelectors.basePackage("com.example.clearsolutionstest.controller"))
-        .paths(PathSelectors.any()).build().apiInfo(apiInfo());
+        .paths(PathSelectors.any()).build().apiInfo(apiInfo())
+        // Pages are written by CompactPageJsonSerializer, not as Spring Data beans.
+        .alternateTypeRules(
+            AlternateTypeRules.newRule(typeResolver.resolve(Page.class, WildcardType.class),
+                typeResolver.resolve(CompactPage.class, WildcardType.class)),
+            AlternateTypeRules.newRule(typeResolver.resolve(Slice.class, WildcardType.class),
+                typeResolver.resolve(CompactPage.class, WildcardType.class)))
+        .additionalModels(typeResolver.resolve(CompactPage.class));
+  }
+
+  // Works around Springfox 2.9 failing on the path-pattern mappings that Actuator registers.
+  @Bean
+  public static BeanPostProcessor springfoxHandlerMappingsPostProcessor() {
+    return new BeanPostProcessor() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof WebMvcRequestHandlerProvider) {
+          Field field = ReflectionUtils.findField(bean.getClass(), "handlerMappings");
+          ReflectionUtils.makeAccessible(field);
+          List<RequestMappingInfoHandlerMapping> mappings =
+              (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+          List<RequestMappingInfoHandlerMapping> supported = mappings.stream()
+              .filter(mapping -> mapping.getPatternParser() == null)
+              .collect(Collectors.toList());
+          mappings.clear();
+          mappings.addAll(supported);
+        }
+        return bean;
+      }
+    };
   }
 
   private ApiInfo apiInfo() {
@@ -28,7 +71,11 @@ public class SwaggerConfig {
                 + "1. Create user. It allows to register users who are more than [18] years old. The value [18] should be taken from properties file.\n"
                 + "2. Update one/some user fields\n" + "2.3. Update all user fields\n"
                 + "4. Delete user\n"
-                + "5. Search for users by birth date range. Add the validation which checks that “From” is less than “To”.  Should return a list of objects\n")
+                + "5. Search for users by birth date range. Add the validation which checks that “From” is less than “To”.  Should return a list of objects\n"
+                + "\nPaged results (search and birthdays) use the CompactPage shape: content, "
+                + "number, size, totalElements and totalPages (pages only), first and last. "
+                + "The pageable, sort, numberOfElements and empty properties are no longer "
+                + "returned.\n")
         .version("1.0").build();
   }
 }
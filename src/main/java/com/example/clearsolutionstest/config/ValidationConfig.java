@@ -0,0 +1,35 @@
+package com.example.clearsolutionstest.config;
+
+import com.example.clearsolutionstest.validation.BirthDateCutoffs;
+import com.example.clearsolutionstest.validation.EmailMatcher;
+import com.example.clearsolutionstest.validation.RegexEmailMatcher;
+import com.example.clearsolutionstest.validation.SinglePassEmailMatcher;
+import java.time.Clock;
+import java.time.ZoneId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ValidationConfig {
+
+  @Bean
+  public EmailMatcher emailMatcher(@Value("${email.validation.engine:regex}") String engine,
+      @Value("${email.validation.pattern.regexp}") String regexp) {
+    switch (engine) {
+      case "regex":
+        return new RegexEmailMatcher(regexp);
+      case "single-pass":
+        return new SinglePassEmailMatcher();
+      default:
+        throw new IllegalArgumentException("Unknown email validation engine: " + engine);
+    }
+  }
+
+  @Bean
+  public BirthDateCutoffs birthDateCutoffs(@Value("${adultAge}") int adultAge,
+      @Value("${users.validation.zone:}") String zone) {
+    ZoneId zoneId = zone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    return new BirthDateCutoffs(adultAge, zoneId, Clock.systemUTC());
+  }
+}
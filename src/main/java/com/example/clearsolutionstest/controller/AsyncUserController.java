@@ -0,0 +1,176 @@
+package com.example.clearsolutionstest.controller;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.DistributionBucketType;
+import com.example.clearsolutionstest.request.ExportFormat;
+import com.example.clearsolutionstest.request.SearchPagination;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.service.UserService;
+import com.example.clearsolutionstest.validation.UserValidator;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Serves the same contract as {@link UserController}, but runs each handler on a bounded executor
+ * so that container threads are released while JDBC calls are in flight. When the executor queue
+ * is full the request is answered with 503 and a Retry-After header instead of waiting. Streaming
+ * import, export and the change feed stay on the container thread, so they are not cut off by the
+ * async request timeout and do not hold pool threads for the length of a transfer.
+ */
+@RestController
+@RequestMapping("/users")
+@Profile("async")
+public class AsyncUserController {
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  private final UserController users;
+  private final Executor executor;
+
+  public AsyncUserController(UserService userService, UserValidator validator,
+      @Qualifier("usersExecutor") Executor executor) {
+    this.users = new UserController(userService, validator);
+    this.executor = executor;
+  }
+
+  @PostMapping
+  public CompletableFuture<ResponseEntity<?>> createUser(@RequestBody @Valid User user,
+      BindingResult bindingResult) {
+    return offload(() -> users.createUser(user, bindingResult));
+  }
+
+  @PostMapping("/batch")
+  public CompletableFuture<ResponseEntity<?>> createUsers(@RequestBody List<User> newUsers) {
+    return offload(() -> users.createUsers(newUsers));
+  }
+
+  @PostMapping(path = "/import", consumes = "text/csv")
+  public void importUsers(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    // Streams for as long as the upload lasts, which no async timeout or pool thread should cap.
+    users.importUsers(request, response);
+  }
+
+  @GetMapping("/{userId}")
+  public CompletableFuture<ResponseEntity<?>> getUser(@PathVariable Long userId,
+      WebRequest webRequest) {
+    return offload(() -> users.getUser(userId, webRequest));
+  }
+
+  @GetMapping("/cache-stats")
+  public CompletableFuture<ResponseEntity<?>> getCacheStatistics() {
+    return offload(users::getCacheStatistics);
+  }
+
+  @PatchMapping("/{userId}")
+  public CompletableFuture<ResponseEntity<?>> updateUserNonRequiredData(
+      @PathVariable Long userId, @RequestBody UserUpdateNonRequiredDataRequest request,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    return offload(() -> users.updateUserNonRequiredData(userId, request, ifMatch));
+  }
+
+  @PutMapping("/{userId}")
+  public CompletableFuture<ResponseEntity<?>> updateAllUserFields(@PathVariable Long userId,
+      @RequestBody @Valid User updatedUserData, BindingResult bindingResult,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    return offload(() -> users.updateAllUserFields(userId, updatedUserData, bindingResult,
+        ifMatch));
+  }
+
+  @DeleteMapping("/{userId}")
+  public CompletableFuture<ResponseEntity<?>> deleteUser(@PathVariable Long userId) {
+    return offload(() -> users.deleteUser(userId));
+  }
+
+  @GetMapping("/search")
+  public CompletableFuture<ResponseEntity<?>> searchUsersByBirthDateRange(
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to,
+      @RequestParam(defaultValue = "OFFSET") SearchPagination pagination,
+      @RequestParam(required = false) String after,
+      @RequestParam(required = false) List<String> fields,
+      @PageableDefault(size = 10, page = 0) Pageable pageable, WebRequest webRequest) {
+    return offload(() -> users.searchUsersByBirthDateRange(from, to, pagination, after, fields,
+        pageable, webRequest));
+  }
+
+  @GetMapping("/birthdays")
+  public CompletableFuture<ResponseEntity<?>> findUsersWithUpcomingBirthday(
+      @RequestParam int withinDays, @PageableDefault(size = 10, page = 0) Pageable pageable,
+      WebRequest webRequest) {
+    return offload(() -> users.findUsersWithUpcomingBirthday(withinDays, pageable, webRequest));
+  }
+
+  @GetMapping("/lookup")
+  public CompletableFuture<ResponseEntity<?>> lookupUsers(@RequestParam String q,
+      @RequestParam(defaultValue = "10") int limit) {
+    return offload(() -> users.lookupUsers(q, limit));
+  }
+
+  @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamChanges(
+      @RequestHeader(value = UserController.LAST_EVENT_ID, required = false) Long lastEventId) {
+    // Subscribing only registers an emitter, and SSE responses are already asynchronous.
+    return users.streamChanges(lastEventId);
+  }
+
+  @GetMapping("/distribution")
+  public CompletableFuture<ResponseEntity<?>> getBirthDateDistribution(
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to,
+      @RequestParam(defaultValue = "YEAR") DistributionBucketType bucket,
+      @RequestParam(defaultValue = "10") int bandWidth) {
+    return offload(() -> users.getBirthDateDistribution(from, to, bucket, bandWidth));
+  }
+
+  @GetMapping("/export")
+  public void exportUsersByBirthDateRange(
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to,
+      @RequestParam(defaultValue = "NDJSON") ExportFormat format, HttpServletResponse response)
+      throws IOException {
+    // Like the import, the export stays on the container thread for its whole transfer.
+    users.exportUsersByBirthDateRange(from, to, format, response);
+  }
+
+  private CompletableFuture<ResponseEntity<?>> offload(Supplier<ResponseEntity<?>> handler) {
+    try {
+      return CompletableFuture.supplyAsync(handler, executor);
+    } catch (RejectedExecutionException e) {
+      ResponseEntity<?> unavailable = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+      return CompletableFuture.completedFuture(unavailable);
+    }
+  }
+}
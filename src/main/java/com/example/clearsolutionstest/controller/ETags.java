@@ -0,0 +1,47 @@
+package com.example.clearsolutionstest.controller;
+
+import com.example.clearsolutionstest.entity.User;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.util.DigestUtils;
+
+final class ETags {
+
+  private static final long NO_VERSION = -1L;
+
+  private ETags() {
+  }
+
+  static String of(User user) {
+    return user.getVersion() == null ? null : "\"" + user.getVersion() + "\"";
+  }
+
+  static String of(List<User> users, Object... qualifiers) {
+    byte[] suffix = Arrays.toString(qualifiers).getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(users.size() * 2 * Long.BYTES + suffix.length);
+    for (User user : users) {
+      buffer.putLong(user.getId() == null ? NO_VERSION : user.getId());
+      buffer.putLong(user.getVersion() == null ? NO_VERSION : user.getVersion());
+    }
+    buffer.put(suffix);
+    return "W/\"" + DigestUtils.md5DigestAsHex(buffer.array()) + "\"";
+  }
+
+  // If-Match uses strong comparison: weak or malformed tags map to a version no row has.
+  static Long parseVersion(String ifMatch) {
+    String value = ifMatch.trim();
+    if (value.equals("*")) {
+      return null;
+    }
+    if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+      value = value.substring(1, value.length() - 1);
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return NO_VERSION;
+    }
+  }
+}
@@ -1,18 +1,33 @@
 package com.example.clearsolutionstest.controller;
 
 import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.DistributionBucketType;
+import com.example.clearsolutionstest.request.ExportFormat;
+import com.example.clearsolutionstest.request.SearchPagination;
 import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.response.CacheStatistics;
+import com.example.clearsolutionstest.response.KeysetSlice;
+import com.example.clearsolutionstest.response.UserBatchItemResult;
 import com.example.clearsolutionstest.service.UserService;
 import com.example.clearsolutionstest.validation.UserValidator;
+import java.io.IOException;
 import java.util.Date;
+import java.util.List;
 import java.util.NoSuchElementException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -22,15 +37,21 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/users")
+@Profile("!async")
 @RequiredArgsConstructor
 public class UserController {
 
+  static final String LAST_EVENT_ID = "Last-Event-ID";
+
   private final UserService userService;
   private final UserValidator validator;
 
@@ -44,58 +65,210 @@ public class UserController {
     return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
   }
 
+  @PostMapping("/batch")
+  public ResponseEntity<List<UserBatchItemResult>> createUsers(@RequestBody List<User> users) {
+    return ResponseEntity.ok(userService.createAll(users));
+  }
+
+
+  @PostMapping(path = "/import", consumes = "text/csv")
+  public void importUsers(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    response.setContentType(ExportFormat.NDJSON.getContentType());
+    response.setCharacterEncoding("UTF-8");
+    try {
+      userService.importUsers(request.getInputStream(), response.getOutputStream());
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    } catch (IllegalStateException e) {
+      response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+      response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+    }
+  }
+
+  @GetMapping("/{userId}")
+  public ResponseEntity<?> getUser(@PathVariable Long userId, WebRequest webRequest) {
+    try {
+      User user = userService.getUser(userId);
+      String eTag = ETags.of(user);
+      if (eTag != null && webRequest.checkNotModified(eTag)) {
+        return null;
+      }
+      return withETag(ResponseEntity.ok(), eTag).body(user);
+    } catch (NoSuchElementException e) {
+      return ResponseEntity.notFound().build();
+    }
+  }
+
+  @GetMapping("/cache-stats")
+  public ResponseEntity<CacheStatistics> getCacheStatistics() {
+    return ResponseEntity.ok(userService.getCacheStatistics());
+  }
 
   @PatchMapping("/{userId}")
   public ResponseEntity<?> updateUserNonRequiredData(@PathVariable Long userId,
-      @RequestBody UserUpdateNonRequiredDataRequest request) {
+      @RequestBody UserUpdateNonRequiredDataRequest request,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     try {
-      User updatedUser = userService.updateUserNonRequiredData(userId, request);
+      User updatedUser = ifMatch == null
+          ? userService.updateUserNonRequiredData(userId, request)
+          : userService.updateUserNonRequiredData(userId, request, ETags.parseVersion(ifMatch));
       if (updatedUser != null) {
-        return ResponseEntity.ok(updatedUser);
+        return withETag(ResponseEntity.ok(), ETags.of(updatedUser)).body(updatedUser);
       } else {
         return ResponseEntity.notFound().build();
       }
     } catch (NoSuchElementException e) {
       return ResponseEntity.notFound().build();
+    } catch (OptimisticLockingFailureException e) {
+      return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
     }
   }
 
   @PutMapping("/{userId}")
   public ResponseEntity<?> updateAllUserFields(@PathVariable Long userId,
-      @RequestBody @Valid User updatedUserData, BindingResult bindingResult) {
+      @RequestBody @Valid User updatedUserData, BindingResult bindingResult,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     if (bindingResult.hasErrors()) {
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(bindingResult.getAllErrors());
     }
 
     try {
-      User updatedUser = userService.update(userId, updatedUserData);
+      User updatedUser = ifMatch == null
+          ? userService.update(userId, updatedUserData)
+          : userService.update(userId, updatedUserData, ETags.parseVersion(ifMatch));
       if (updatedUser != null) {
-        return ResponseEntity.ok(updatedUser);
+        return withETag(ResponseEntity.ok(), ETags.of(updatedUser)).body(updatedUser);
       } else {
         return ResponseEntity.notFound().build();
       }
     } catch (NoSuchElementException e) {
       return ResponseEntity.notFound().build();
+    } catch (OptimisticLockingFailureException e) {
+      return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
     }
   }
 
   @DeleteMapping("/{userId}")
   public ResponseEntity<?> deleteUser(@PathVariable Long userId) {
-    userService.deleteUser(userId);
-    return ResponseEntity.noContent().build();
+    try {
+      userService.deleteUser(userId);
+      return ResponseEntity.noContent().build();
+    } catch (NoSuchElementException e) {
+      return ResponseEntity.notFound().build();
+    }
   }
 
   @GetMapping("/search")
   public ResponseEntity<?> searchUsersByBirthDateRange(
       @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
       @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to,
-      @PageableDefault(size = 10, page = 0) Pageable pageable) {
+      @RequestParam(defaultValue = "OFFSET") SearchPagination pagination,
+      @RequestParam(required = false) String after,
+      @RequestParam(required = false) List<String> fields,
+      @PageableDefault(size = 10, page = 0) Pageable pageable, WebRequest webRequest) {
+    try {
+      if (fields != null && !fields.isEmpty()) {
+        if (pagination != SearchPagination.OFFSET) {
+          return ResponseEntity.badRequest()
+              .body("The 'fields' parameter requires OFFSET pagination.");
+        }
+        return ResponseEntity.ok(
+            userService.findUserFieldsByBirthDateRange(from, to, fields, pageable));
+      }
+      if (pagination == SearchPagination.KEYSET) {
+        KeysetSlice<User> users =
+            userService.findUsersByBirthDateRangeAfter(from, to, after, pageable.getPageSize());
+        return conditional(users, ETags.of(users.getContent(), users.getNextCursor()),
+            webRequest);
+      }
+      if (pagination == SearchPagination.SLICE) {
+        Slice<User> users = userService.findUserSliceByBirthDateRange(from, to, pageable);
+        return conditional(users, ETags.of(users.getContent(), users.getNumber(),
+            users.getSize(), users.hasNext(), users.getSort()), webRequest);
+      }
+      Page<User> users = pagination == SearchPagination.APPROXIMATE
+          ? userService.findUsersByBirthDateRangeWithApproximateTotal(from, to, pageable)
+          : userService.findUsersByBirthDateRange(from, to, pageable);
+      return conditional(users, ETags.of(users.getContent(), users.getNumber(), users.getSize(),
+          users.getTotalElements(), users.getSort()), webRequest);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
+  @GetMapping("/birthdays")
+  public ResponseEntity<?> findUsersWithUpcomingBirthday(@RequestParam int withinDays,
+      @PageableDefault(size = 10, page = 0) Pageable pageable, WebRequest webRequest) {
+    try {
+      Page<User> users = userService.findUsersWithBirthdayWithin(withinDays, pageable);
+      return conditional(users, ETags.of(users.getContent(), withinDays, users.getNumber(),
+          users.getSize(), users.getTotalElements()), webRequest);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
+  @GetMapping("/lookup")
+  public ResponseEntity<?> lookupUsers(@RequestParam String q,
+      @RequestParam(defaultValue = "10") int limit) {
+    try {
+      return ResponseEntity.ok(userService.lookupUsers(q, limit));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
+    }
+  }
+
+  @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamChanges(
+      @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId) {
+    try {
+      return ResponseEntity.ok(userService.subscribeToChanges(lastEventId));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, "5").build();
+    }
+  }
+
+  @GetMapping("/distribution")
+  public ResponseEntity<?> getBirthDateDistribution(
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to,
+      @RequestParam(defaultValue = "YEAR") DistributionBucketType bucket,
+      @RequestParam(defaultValue = "10") int bandWidth) {
     try {
-      Page<User> users = userService.findUsersByBirthDateRange(from, to, pageable);
-      return ResponseEntity.ok(users);
+      return ResponseEntity.ok(userService.getBirthDateDistribution(from, to, bucket, bandWidth));
     } catch (IllegalArgumentException e) {
       return ResponseEntity.badRequest().body(e.getMessage());
     }
   }
 
+  @GetMapping("/export")
+  public void exportUsersByBirthDateRange(
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date from,
+      @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date to,
+      @RequestParam(defaultValue = "NDJSON") ExportFormat format, HttpServletResponse response)
+      throws IOException {
+    response.setContentType(format.getContentType());
+    response.setCharacterEncoding("UTF-8");
+    try {
+      userService.exportUsersByBirthDateRange(from, to, format, response.getOutputStream());
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+  }
+
+  private static ResponseEntity<?> conditional(Object body, String eTag,
+      WebRequest webRequest) {
+    if (webRequest.checkNotModified(eTag)) {
+      return null;
+    }
+    return ResponseEntity.ok().eTag(eTag).body(body);
+  }
+
+  private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder,
+      String eTag) {
+    return eTag == null ? builder : builder.eTag(eTag);
+  }
+
 }
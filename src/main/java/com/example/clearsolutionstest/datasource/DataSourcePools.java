@@ -0,0 +1,39 @@
+package com.example.clearsolutionstest.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.Closeable;
+import java.util.Map;
+import lombok.Value;
+
+/** The primary connection pool and the replica pools keyed by pool name. */
+@Value
+public class DataSourcePools implements Closeable, MeterBinder {
+
+  HikariDataSource primary;
+  Map<String, HikariDataSource> replicas;
+
+  /**
+   * Publishes Hikari's pool metrics, tagged with the pool name. The pools may already be running,
+   * which Hikari allows as long as no tracker has been set yet.
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    bind(primary, registry);
+    replicas.values().forEach(replica -> bind(replica, registry));
+  }
+
+  @Override
+  public void close() {
+    replicas.values().forEach(HikariDataSource::close);
+    primary.close();
+  }
+
+  private static void bind(HikariDataSource pool, MeterRegistry registry) {
+    if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+      pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package com.example.clearsolutionstest.datasource;
+
+import com.example.clearsolutionstest.response.UserChangeEvent;
+import com.example.clearsolutionstest.service.UserChangeFeed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps local H2 replicas in sync with the primary so replica routing can be tried without a
+ * replicated database. Once the application is ready, the schema and all users are copied to
+ * every replica. After that, the users named by each batch of change feed events are copied
+ * again from the primary, together with the heartbeat row read before the batch, so the measured
+ * lag covers the whole batch. When the feed has moved past the sync position, the users table is
+ * copied in full again.
+ *
+ * <p>Write-behind updates reach the primary after their change event, so they are copied with
+ * the next change to the same user or the next full copy.
+ */
+@Slf4j
+public class LocalReplicaSync {
+
+  private static final String USERS_TABLE = "users";
+  private static final int FETCH_SIZE = 1000;
+
+  private final JdbcTemplate primary;
+  private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+  private final Map<String, TransactionTemplate> replicaTransactions = new LinkedHashMap<>();
+  private final UserChangeFeed changeFeed;
+  private final Duration interval;
+  private final int maxBatch;
+  private final int batchSize;
+  private final Counter fullCopies;
+  private ScheduledExecutorService scheduler;
+  private long position;
+
+  public LocalReplicaSync(DataSourcePools pools, UserChangeFeed changeFeed,
+      MeterRegistry meterRegistry, Duration interval, int maxBatch, int batchSize) {
+    this.primary = new JdbcTemplate(pools.getPrimary());
+    pools.getReplicas().forEach((pool, dataSource) -> {
+      replicas.put(pool, new JdbcTemplate(dataSource));
+      replicaTransactions.put(pool,
+          new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    });
+    this.changeFeed = changeFeed;
+    this.interval = interval;
+    this.maxBatch = maxBatch;
+    this.batchSize = batchSize;
+    this.fullCopies = meterRegistry.counter("users.datasource.replica.full-copies");
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    List<String> schema = primary.queryForList("script nodata", String.class).stream()
+        .filter(statement -> !statement.startsWith("--"))
+        .collect(Collectors.toList());
+    replicas.values().forEach(replica -> {
+      replica.execute("drop all objects");
+      schema.forEach(replica::execute);
+    });
+    copyAll();
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+        new CustomizableThreadFactory("users-replica-sync-"));
+    scheduler.scheduleWithFixedDelay(this::syncQuietly, interval.toMillis(),
+        interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler.awaitTermination(interval.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  void sync() {
+    List<Object[]> heartbeat = readHeartbeat();
+    List<UserChangeEvent> events = new ArrayList<>();
+    if (!changeFeed.read(position, maxBatch, events)) {
+      copyAll();
+      return;
+    }
+
+    Set<Long> userIds = events.stream().map(UserChangeEvent::getUserId)
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+    replicas.forEach((pool, replica) -> replicaTransactions.get(pool).executeWithoutResult(
+        status -> {
+          if (!userIds.isEmpty()) {
+            String ids = userIds.stream().map(String::valueOf)
+                .collect(Collectors.joining(", ", "(", ")"));
+            replica.update("delete from " + USERS_TABLE + " where id in " + ids);
+            copyRows("select * from " + USERS_TABLE + " where id in " + ids, replica);
+          }
+          writeHeartbeat(replica, heartbeat);
+        }));
+    if (!events.isEmpty()) {
+      position = events.get(events.size() - 1).getSequence() + 1;
+    }
+  }
+
+  private void copyAll() {
+    // Changes published from here on are copied again by the next sync, so none is lost.
+    long head = changeFeed.nextSequence();
+    List<Object[]> heartbeat = readHeartbeat();
+    replicas.forEach((pool, replica) -> replicaTransactions.get(pool).executeWithoutResult(
+        status -> {
+          replica.update("delete from " + USERS_TABLE);
+          copyRows("select * from " + USERS_TABLE + " order by id", replica);
+          writeHeartbeat(replica, heartbeat);
+        }));
+    position = head;
+    fullCopies.increment();
+  }
+
+  private List<Object[]> readHeartbeat() {
+    return primary.query("select id, beat_at from " + ReplicaLagMonitor.HEARTBEAT_TABLE,
+        (row, rowNum) -> new Object[] {row.getObject(1), row.getObject(2)});
+  }
+
+  private void writeHeartbeat(JdbcTemplate replica, List<Object[]> heartbeat) {
+    replica.batchUpdate("merge into " + ReplicaLagMonitor.HEARTBEAT_TABLE
+        + " (id, beat_at) key (id) values (?, ?)", heartbeat);
+  }
+
+  private void copyRows(String query, JdbcTemplate replica) {
+    primary.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement(query);
+      statement.setFetchSize(FETCH_SIZE);
+      return statement;
+    }, (ResultSetExtractor<Void>) rows -> {
+      ResultSetMetaData metaData = rows.getMetaData();
+      List<String> columns = new ArrayList<>(metaData.getColumnCount());
+      for (int i = 1; i <= metaData.getColumnCount(); i++) {
+        columns.add(metaData.getColumnName(i));
+      }
+      String insert = "insert into " + USERS_TABLE + " (" + String.join(", ", columns)
+          + ") values (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+
+      List<Object[]> batch = new ArrayList<>(batchSize);
+      while (rows.next()) {
+        batch.add(values(rows, columns.size()));
+        if (batch.size() == batchSize) {
+          replica.batchUpdate(insert, batch);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        replica.batchUpdate(insert, batch);
+      }
+      return null;
+    });
+  }
+
+  private static Object[] values(ResultSet row, int columns) throws SQLException {
+    Object[] values = new Object[columns];
+    for (int i = 0; i < columns; i++) {
+      values[i] = row.getObject(i + 1);
+    }
+    return values;
+  }
+
+  private void syncQuietly() {
+    try {
+      sync();
+    } catch (RuntimeException e) {
+      log.error("Failed to sync local replicas", e);
+    }
+  }
+}
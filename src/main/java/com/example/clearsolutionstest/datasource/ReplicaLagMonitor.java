@@ -0,0 +1,119 @@
+package com.example.clearsolutionstest.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Measures replica lag with a heartbeat row: the primary's row is stamped with the current time
+ * on every tick, and a replica's lag is how far its copy of that row is behind. A replica whose
+ * lag exceeds the limit, or whose heartbeat cannot be read, is unavailable until it catches up.
+ * Lag is measured against this application's clock, so every instance writing heartbeats should
+ * run with a synchronized clock.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements MeterBinder, SmartInitializingSingleton {
+
+  static final String HEARTBEAT_TABLE = "users_replica_heartbeat";
+
+  private static final long UNKNOWN = -1;
+
+  private final JdbcTemplate primary;
+  private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+  private final Map<String, AtomicLong> lagMillis = new LinkedHashMap<>();
+  private final long maxLagMillis;
+  private final Duration heartbeatInterval;
+  private ScheduledExecutorService scheduler;
+
+  public ReplicaLagMonitor(DataSourcePools pools, Duration maxLag, Duration heartbeatInterval) {
+    this.primary = new JdbcTemplate(pools.getPrimary());
+    this.maxLagMillis = maxLag.toMillis();
+    this.heartbeatInterval = heartbeatInterval;
+    pools.getReplicas().forEach((pool, dataSource) -> {
+      replicas.put(pool, new JdbcTemplate(dataSource));
+      lagMillis.put(pool, new AtomicLong(UNKNOWN));
+    });
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    lagMillis.forEach((pool, lag) ->
+        Gauge.builder("users.datasource.replica.lag", lag,
+                value -> value.get() == UNKNOWN ? Double.NaN : value.get() / 1000.0)
+            .tag("pool", pool)
+            .baseUnit("seconds")
+            .register(registry));
+  }
+
+  /** Starts once every bean exists, so the first connections never race the meter registry. */
+  @Override
+  public void afterSingletonsInstantiated() {
+    primary.execute("create table if not exists " + HEARTBEAT_TABLE
+        + " (id int primary key, beat_at bigint not null)");
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+        new CustomizableThreadFactory("users-replica-heartbeat-"));
+    scheduler.scheduleWithFixedDelay(this::checkQuietly, 0, heartbeatInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (scheduler == null) {
+      return;
+    }
+    scheduler.shutdown();
+    scheduler.awaitTermination(heartbeatInterval.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+  }
+
+  /** Returns whether the replica's last measured lag is within the limit. */
+  public boolean isAvailable(String pool) {
+    long lag = lagMillis.get(pool).get();
+    return lag != UNKNOWN && lag <= maxLagMillis;
+  }
+
+  void check() {
+    long now = System.currentTimeMillis();
+    try {
+      if (primary.update("update " + HEARTBEAT_TABLE + " set beat_at = ? where id = 1", now)
+          == 0) {
+        primary.update("insert into " + HEARTBEAT_TABLE + " (id, beat_at) values (1, ?)", now);
+      }
+    } catch (DataAccessException e) {
+      // Replicas are still measured; their heartbeat ages until they are unavailable.
+      log.error("Failed to write the replica heartbeat", e);
+    }
+    replicas.forEach((pool, replica) -> lagMillis.get(pool).set(measureLag(pool, replica)));
+  }
+
+  private long measureLag(String pool, JdbcTemplate replica) {
+    try {
+      Long beatAt = replica.query("select beat_at from " + HEARTBEAT_TABLE + " where id = 1",
+          rows -> rows.next() ? rows.getLong(1) : null);
+      return beatAt == null ? UNKNOWN : Math.max(0, System.currentTimeMillis() - beatAt);
+    } catch (DataAccessException e) {
+      log.debug("Cannot read the heartbeat of replica {}", pool, e);
+      return UNKNOWN;
+    }
+  }
+
+  private void checkQuietly() {
+    try {
+      check();
+    } catch (RuntimeException e) {
+      log.error("Failed to check replica lag", e);
+    }
+  }
+}
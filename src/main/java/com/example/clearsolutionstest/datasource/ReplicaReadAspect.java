@@ -0,0 +1,25 @@
+package com.example.clearsolutionstest.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Lets {@code @Transactional(readOnly = true)} service methods read from a replica. */
+@Aspect
+public class ReplicaReadAspect {
+
+  @Around("within(com.example.clearsolutionstest.service..*) && @annotation(transactional)")
+  public Object readFromReplica(ProceedingJoinPoint joinPoint, Transactional transactional)
+      throws Throwable {
+    if (!transactional.readOnly() || ReplicaRoutingDataSource.isReplicaScope()) {
+      return joinPoint.proceed();
+    }
+    ReplicaRoutingDataSource.setReplicaScope(true);
+    try {
+      return joinPoint.proceed();
+    } finally {
+      ReplicaRoutingDataSource.setReplicaScope(false);
+    }
+  }
+}
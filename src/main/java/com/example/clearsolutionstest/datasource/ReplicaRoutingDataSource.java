@@ -0,0 +1,96 @@
+package com.example.clearsolutionstest.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out replica connections inside read-only service transactions and primary connections
+ * everywhere else. Replicas are picked round-robin among those within the lag limit; when none
+ * is, the read falls back to the primary. The decision is made when the connection is obtained,
+ * so this has to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which delays that
+ * until the transaction's read-only flag has been set.
+ *
+ * <p>Spring Data runs every repository read in a read-only transaction of its own, including the
+ * read half of a read-modify-write. Those stay on the primary: only read-only transactions declared
+ * on service methods, marked by {@link ReplicaReadAspect}, may use a replica.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+  static final String PRIMARY = "primary";
+
+  private static final ThreadLocal<Boolean> REPLICA_SCOPE = new ThreadLocal<>();
+
+  private final List<String> replicas;
+  private final ReplicaLagMonitor lagMonitor;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private final Map<String, LongAdder> connections = new HashMap<>();
+  private final LongAdder fallbacks = new LongAdder();
+
+  public ReplicaRoutingDataSource(DataSourcePools pools, ReplicaLagMonitor lagMonitor) {
+    this.replicas = new ArrayList<>(pools.getReplicas().keySet());
+    this.lagMonitor = lagMonitor;
+    Map<Object, Object> targets = new HashMap<>(pools.getReplicas());
+    targets.put(PRIMARY, pools.getPrimary());
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(pools.getPrimary());
+    setLenientFallback(false);
+    targets.keySet().forEach(pool -> connections.put((String) pool, new LongAdder()));
+    afterPropertiesSet();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    connections.forEach((pool, count) ->
+        FunctionCounter.builder("users.datasource.connections", count, LongAdder::sum)
+            .tag("pool", pool)
+            .register(registry));
+    FunctionCounter.builder("users.datasource.replica.fallbacks", fallbacks, LongAdder::sum)
+        .register(registry);
+  }
+
+  static boolean isReplicaScope() {
+    return REPLICA_SCOPE.get() != null;
+  }
+
+  static void setReplicaScope(boolean replicaScope) {
+    if (replicaScope) {
+      REPLICA_SCOPE.set(Boolean.TRUE);
+    } else {
+      REPLICA_SCOPE.remove();
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return route(isReplicaScope()
+        && TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+  }
+
+  String route(boolean readOnly) {
+    String pool = readOnly ? pickReplica() : PRIMARY;
+    connections.get(pool).increment();
+    return pool;
+  }
+
+  private String pickReplica() {
+    int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+    for (int i = 0; i < replicas.size(); i++) {
+      String replica = replicas.get((start + i) % replicas.size());
+      if (lagMonitor.isAvailable(replica)) {
+        return replica;
+      }
+    }
+    fallbacks.increment();
+    return PRIMARY;
+  }
+}
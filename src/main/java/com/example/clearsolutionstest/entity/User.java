@@ -1,23 +1,35 @@
 package com.example.clearsolutionstest.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 import lombok.Data;
 
 @Entity
 @Data
-@Table(name = "users")
+@Table(name = "users", indexes = {
+    @Index(name = "idx_users_birth_date_id", columnList = "birth_date, id"),
+    @Index(name = "idx_users_birth_month_day_id", columnList = "birth_month_day, id")})
 public class User {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
   private Long id;
 
   @Column(name = "email", nullable = false, unique = true)
@@ -33,6 +45,25 @@ public class User {
   @Temporal(TemporalType.DATE)
   private Date birthDate;
 
+  @Column(name = "birth_month_day")
+  @JsonIgnore
+  private Integer birthMonthDay;
+
   private String address;
   private String phoneNumber;
+
+  @Version
+  @JsonIgnore
+  private Long version;
+
+  public static int toBirthMonthDay(LocalDate date) {
+    return date.getMonthValue() * 100 + date.getDayOfMonth();
+  }
+
+  @PrePersist
+  @PreUpdate
+  void updateBirthMonthDay() {
+    birthMonthDay = birthDate == null ? null : toBirthMonthDay(
+        Instant.ofEpochMilli(birthDate.getTime()).atZone(ZoneId.systemDefault()).toLocalDate());
+  }
 }
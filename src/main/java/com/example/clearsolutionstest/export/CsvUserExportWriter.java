@@ -0,0 +1,64 @@
+package com.example.clearsolutionstest.export;
+
+import com.example.clearsolutionstest.entity.User;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+
+public class CsvUserExportWriter implements UserExportWriter {
+
+  public static final String HEADER = "id,email,firstname,lastname,birthDate,address,phoneNumber";
+
+  private final Writer writer;
+
+  public CsvUserExportWriter(OutputStream out) throws IOException {
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writer.write(HEADER);
+    writer.write('\n');
+  }
+
+  @Override
+  public void write(User user) throws IOException {
+    writer.write(String.valueOf(user.getId()));
+    writer.write(',');
+    writeField(user.getEmail());
+    writer.write(',');
+    writeField(user.getFirstname());
+    writer.write(',');
+    writeField(user.getLastname());
+    writer.write(',');
+    if (user.getBirthDate() != null) {
+      writer.write(Instant.ofEpochMilli(user.getBirthDate().getTime())
+          .atZone(ZoneId.systemDefault()).toLocalDate().toString());
+    }
+    writer.write(',');
+    writeField(user.getAddress());
+    writer.write(',');
+    writeField(user.getPhoneNumber());
+    writer.write('\n');
+  }
+
+  @Override
+  public void finish() throws IOException {
+    writer.flush();
+  }
+
+  private void writeField(String value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      writer.write(value);
+      return;
+    }
+    writer.write('"');
+    writer.write(value.replace("\"", "\"\""));
+    writer.write('"');
+  }
+}
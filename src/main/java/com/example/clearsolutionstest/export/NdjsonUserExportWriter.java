@@ -0,0 +1,33 @@
+package com.example.clearsolutionstest.export;
+
+import com.example.clearsolutionstest.entity.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class NdjsonUserExportWriter implements UserExportWriter {
+
+  private final ObjectWriter writer;
+  private final JsonGenerator generator;
+
+  public NdjsonUserExportWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+    this.writer = objectMapper.writerFor(User.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.generator = objectMapper.getFactory().createGenerator(out)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  @Override
+  public void write(User user) throws IOException {
+    writer.writeValue(generator, user);
+    generator.writeRaw('\n');
+  }
+
+  @Override
+  public void finish() throws IOException {
+    generator.close();
+  }
+}
@@ -0,0 +1,11 @@
+package com.example.clearsolutionstest.export;
+
+import com.example.clearsolutionstest.entity.User;
+import java.io.IOException;
+
+public interface UserExportWriter {
+
+  void write(User user) throws IOException;
+
+  void finish() throws IOException;
+}
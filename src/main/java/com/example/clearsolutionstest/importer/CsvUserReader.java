@@ -0,0 +1,170 @@
+package com.example.clearsolutionstest.importer;
+
+import com.example.clearsolutionstest.entity.User;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads users from CSV one record at a time, in the column layout written by
+ * {@link com.example.clearsolutionstest.export.CsvUserExportWriter}. Columns are matched by header
+ * name, so their order does not matter and the {@code id} column is ignored. Quoted fields follow
+ * RFC 4180. A record longer than {@code maxRecordLength} characters aborts the read, so an
+ * unterminated quote cannot pull the rest of the file into memory.
+ */
+public class CsvUserReader {
+
+  public static final String MALFORMED_RECORD = "csv.record.malformed";
+
+  private static final List<String> REQUIRED_COLUMNS =
+      List.of("email", "firstname", "lastname", "birthDate");
+
+  private final Reader reader;
+  private final int maxRecordLength;
+  private final char[] buffer = new char[64 * 1024];
+  private final StringBuilder field = new StringBuilder();
+  private final Map<String, Integer> columns = new HashMap<>();
+  private final int columnCount;
+  private int position;
+  private int limit;
+  private int index;
+
+  public CsvUserReader(InputStream in, int maxRecordLength) throws IOException {
+    this.reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    this.maxRecordLength = maxRecordLength;
+
+    List<String> header = readRecord();
+    if (header == null) {
+      throw new IllegalArgumentException("The CSV header is missing.");
+    }
+    for (int i = 0; i < header.size(); i++) {
+      String name = i == 0 && header.get(0).startsWith("\uFEFF")
+          ? header.get(0).substring(1) : header.get(i);
+      columns.put(name.trim(), i);
+    }
+    for (String column : REQUIRED_COLUMNS) {
+      if (!columns.containsKey(column)) {
+        throw new IllegalArgumentException("The CSV header must contain '" + column + "'.");
+      }
+    }
+    this.columnCount = header.size();
+  }
+
+  /**
+   * Returns the next row, or null at the end of the input. A record with the wrong number of
+   * fields is returned as a rejected row so that the rest of the file can still be read.
+   */
+  public CsvUserRow next() throws IOException {
+    List<String> record;
+    do {
+      record = readRecord();
+      if (record == null) {
+        return null;
+      }
+    } while (record.size() == 1 && record.get(0).isEmpty());
+
+    int rowIndex = index++;
+    if (record.size() != columnCount) {
+      return new CsvUserRow(rowIndex, new User(), List.of(MALFORMED_RECORD));
+    }
+    User user = new User();
+    user.setEmail(value(record, "email"));
+    user.setFirstname(value(record, "firstname"));
+    user.setLastname(value(record, "lastname"));
+    user.setBirthDate(parseDate(value(record, "birthDate")));
+    user.setAddress(value(record, "address"));
+    user.setPhoneNumber(value(record, "phoneNumber"));
+    return new CsvUserRow(rowIndex, user, Collections.emptyList());
+  }
+
+  private String value(List<String> record, String column) {
+    Integer position = columns.get(column);
+    if (position == null) {
+      return null;
+    }
+    String value = record.get(position);
+    return value.isEmpty() ? null : value;
+  }
+
+  private static Date parseDate(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Date.from(LocalDate.parse(value.trim()).atStartOfDay(ZoneId.systemDefault())
+          .toInstant());
+    } catch (DateTimeParseException e) {
+      // Left empty so that validation reports the birth date as invalid.
+      return null;
+    }
+  }
+
+  private List<String> readRecord() throws IOException {
+    int c = read();
+    if (c < 0) {
+      return null;
+    }
+    List<String> record = new ArrayList<>(columns.isEmpty() ? 8 : columns.size());
+    field.setLength(0);
+    boolean quoted = false;
+    boolean fieldStart = true;
+    int length = 0;
+    while (true) {
+      if (quoted) {
+        if (c < 0) {
+          throw new IllegalArgumentException(
+              "Unterminated quoted field in CSV row " + index + ".");
+        }
+        if (c == '"') {
+          c = read();
+          if (c != '"') {
+            quoted = false;
+            continue;
+          }
+        }
+        field.append((char) c);
+      } else if (c == '"' && fieldStart) {
+        quoted = true;
+        fieldStart = false;
+      } else if (c == ',') {
+        record.add(field.toString());
+        field.setLength(0);
+        fieldStart = true;
+      } else if (c == '\n' || c < 0) {
+        record.add(field.toString());
+        return record;
+      } else if (c != '\r') {
+        field.append((char) c);
+        fieldStart = false;
+      }
+      if (++length > maxRecordLength) {
+        throw new IllegalArgumentException(
+            "CSV row " + index + " is longer than " + maxRecordLength + " characters.");
+      }
+      c = read();
+    }
+  }
+
+  private int read() throws IOException {
+    if (position == limit) {
+      limit = reader.read(buffer);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[position++];
+  }
+}
@@ -0,0 +1,21 @@
+package com.example.clearsolutionstest.importer;
+
+import com.example.clearsolutionstest.entity.User;
+import java.util.List;
+import lombok.Value;
+
+@Value
+public class CsvUserRow {
+
+  int index;
+  User user;
+  List<String> errors;
+
+  public boolean isValid() {
+    return errors.isEmpty();
+  }
+
+  public CsvUserRow rejected(List<String> errors) {
+    return new CsvUserRow(index, user, errors);
+  }
+}
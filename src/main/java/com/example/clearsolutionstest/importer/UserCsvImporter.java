@@ -0,0 +1,291 @@
+package com.example.clearsolutionstest.importer;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.response.UserBatchItemResult;
+import com.example.clearsolutionstest.response.UserBatchItemResult.Status;
+import com.example.clearsolutionstest.response.UserImportSummary;
+import com.example.clearsolutionstest.validation.UserValidator;
+import com.example.clearsolutionstest.validation.UserViolation;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports users from a CSV stream through three stages connected by bounded queues: the calling
+ * thread parses rows, a pool of workers validates them, and a single writer inserts them in
+ * batches. A full queue blocks the stage before it, so a slow database slows down reading of the
+ * request body instead of buffering rows. Rejected rows and a final summary are written as
+ * NDJSON while the import runs.
+ */
+@Slf4j
+@Component
+public class UserCsvImporter {
+
+  private static final CsvUserRow END = new CsvUserRow(-1, null, List.of());
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+  private final UserValidator validator;
+  private final ObjectMapper objectMapper;
+  private final ObjectWriter lineWriter;
+  private final int validationWorkers;
+  private final int queueCapacity;
+  private final int batchSize;
+  private final int maxRecordLength;
+  private final Semaphore importPermits;
+  private final ExecutorService executor;
+  private final Counter createdRows;
+  private final Counter rejectedRows;
+
+  public UserCsvImporter(UserValidator validator, ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      @Value("${users.import.validation-workers}") int validationWorkers,
+      @Value("${users.import.queue-capacity}") int queueCapacity,
+      @Value("${users.import.max-concurrent}") int maxConcurrent,
+      @Value("${users.import.max-record-length}") int maxRecordLength,
+      @Value("${users.batch.size}") int batchSize) {
+    this.validator = validator;
+    this.objectMapper = objectMapper;
+    this.lineWriter = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.validationWorkers = validationWorkers;
+    this.queueCapacity = queueCapacity;
+    this.batchSize = batchSize;
+    this.maxRecordLength = maxRecordLength;
+    this.importPermits = new Semaphore(maxConcurrent);
+    this.executor = Executors.newFixedThreadPool(maxConcurrent * (validationWorkers + 1),
+        new CustomizableThreadFactory("users-import-"));
+    this.createdRows = meterRegistry.counter("users.import.rows", "result", "created");
+    this.rejectedRows = meterRegistry.counter("users.import.rows", "result", "rejected");
+  }
+
+  @PreDestroy
+  public void stop() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Runs one import. {@code inserter} receives valid users in batches and returns one result per
+   * user, in order. Throws {@link IllegalArgumentException} before anything is written when the
+   * header is unusable, and {@link IllegalStateException} when too many imports are running.
+   */
+  public UserImportSummary importCsv(InputStream in, OutputStream out,
+      Function<List<User>, List<UserBatchItemResult>> inserter) throws IOException {
+    if (!importPermits.tryAcquire()) {
+      throw new IllegalStateException("Too many imports are running.");
+    }
+    try {
+      return new Import(new CsvUserReader(in, maxRecordLength), out, inserter).run();
+    } finally {
+      importPermits.release();
+    }
+  }
+
+  private class Import {
+
+    private final CsvUserReader reader;
+    private final JsonGenerator generator;
+    private final Function<List<User>, List<UserBatchItemResult>> inserter;
+    private final BlockingQueue<CsvUserRow> parsed = new ArrayBlockingQueue<>(queueCapacity);
+    private final BlockingQueue<CsvUserRow> validated = new ArrayBlockingQueue<>(queueCapacity);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final List<Future<?>> validators = new ArrayList<>();
+    private final CountDownLatch writerDone = new CountDownLatch(1);
+    private long rows;
+    private volatile long created;
+    private volatile long rejected;
+
+    Import(CsvUserReader reader, OutputStream out,
+        Function<List<User>, List<UserBatchItemResult>> inserter) throws IOException {
+      this.reader = reader;
+      this.inserter = inserter;
+      this.generator = objectMapper.getFactory().createGenerator(out)
+          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+          .setRootValueSeparator(null);
+    }
+
+    UserImportSummary run() throws IOException {
+      for (int i = 0; i < validationWorkers; i++) {
+        validators.add(executor.submit(this::validate));
+      }
+      Future<?> writer = executor.submit(this::write);
+
+      try {
+        CsvUserRow row;
+        while ((row = reader.next()) != null) {
+          rows++;
+          transfer(parsed, row);
+        }
+        for (int i = 0; i < validationWorkers; i++) {
+          transfer(parsed, END);
+        }
+        writer.get();
+      } catch (IOException | RuntimeException e) {
+        fail(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(e);
+      } catch (ExecutionException e) {
+        fail(e.getCause());
+      }
+      // The writer owns the generator until it stops, even after a failure.
+      awaitUninterruptibly(writerDone);
+
+      Throwable error = failure.get();
+      UserImportSummary summary;
+      if (error == null) {
+        summary = UserImportSummary.completed(rows, created, rejected);
+      } else {
+        log.warn("User import stopped after {} rows", rows, error);
+        summary = UserImportSummary.failed(rows, created, rejected, error.getMessage());
+      }
+      report(summary);
+      generator.close();
+      return summary;
+    }
+
+    private void validate() {
+      try {
+        while (true) {
+          CsvUserRow row = parsed.take();
+          if (row == END) {
+            transfer(validated, END);
+            return;
+          }
+          if (row.isValid()) {
+            List<UserViolation> violations = validator.check(row.getUser());
+            if (!violations.isEmpty()) {
+              row = row.rejected(violations.stream().map(UserViolation::getCode)
+                  .collect(Collectors.toList()));
+            }
+          }
+          transfer(validated, row);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        fail(e);
+      }
+    }
+
+    private Void write() throws Exception {
+      try {
+        List<CsvUserRow> batch = new ArrayList<>(batchSize);
+        int finishedWorkers = 0;
+        while (finishedWorkers < validationWorkers) {
+          CsvUserRow row = validated.poll(OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+          if (row == null) {
+            if (failure.get() != null) {
+              return null;
+            }
+          } else if (row == END) {
+            finishedWorkers++;
+          } else if (!row.isValid()) {
+            reject(new UserBatchItemResult(row.getIndex(), Status.INVALID, null,
+                row.getUser().getEmail(), row.getErrors()));
+          } else {
+            batch.add(row);
+            if (batch.size() == batchSize) {
+              insert(batch);
+            }
+          }
+        }
+        insert(batch);
+        return null;
+      } catch (Exception e) {
+        fail(e);
+        throw e;
+      } finally {
+        writerDone.countDown();
+      }
+    }
+
+    private void insert(List<CsvUserRow> batch) throws IOException {
+      if (batch.isEmpty()) {
+        return;
+      }
+      List<UserBatchItemResult> results = inserter.apply(
+          batch.stream().map(CsvUserRow::getUser).collect(Collectors.toList()));
+      for (int i = 0; i < batch.size(); i++) {
+        UserBatchItemResult result = results.get(i);
+        if (result.getStatus() == Status.CREATED) {
+          created++;
+          createdRows.increment();
+        } else {
+          reject(new UserBatchItemResult(batch.get(i).getIndex(), result.getStatus(), null,
+              result.getEmail(), result.getErrors()));
+        }
+      }
+      batch.clear();
+      generator.flush();
+    }
+
+    private void reject(UserBatchItemResult result) throws IOException {
+      rejected++;
+      rejectedRows.increment();
+      report(result);
+    }
+
+    private void report(Object line) throws IOException {
+      lineWriter.writeValue(generator, line);
+      generator.writeRaw('\n');
+    }
+
+    private void transfer(BlockingQueue<CsvUserRow> queue, CsvUserRow row)
+        throws InterruptedException {
+      while (!queue.offer(row, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (failure.get() != null) {
+          throw new CancellationException("The import was aborted.");
+        }
+      }
+    }
+
+    private void awaitUninterruptibly(CountDownLatch latch) {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          latch.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void fail(Throwable error) {
+      if (failure.compareAndSet(null, error instanceof UncheckedIOException
+          ? error.getCause() : error)) {
+        validators.forEach(stage -> stage.cancel(true));
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.example.clearsolutionstest.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import org.springframework.boot.jackson.JsonComponent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Writes pages and slices as their content and position. {@code PageImpl}'s bean output also
+ * echoes the request's pageable and sort twice and repeats counts derivable from the content,
+ * which costs more to write than the position itself.
+ *
+ * <p>As a {@link JsonComponent} this applies to every {@code Page} and {@code Slice} the
+ * application writes, in every format. Clients that read {@code pageable}, {@code sort},
+ * {@code numberOfElements} or {@code empty} must derive them instead; the API documentation
+ * describes the shape as {@link com.example.clearsolutionstest.response.CompactPage}.
+ */
+@JsonComponent
+public class CompactPageJsonSerializer extends StdSerializer<Slice<?>> {
+
+  private static final SerializableString CONTENT = new SerializedString("content");
+  private static final SerializableString NUMBER = new SerializedString("number");
+  private static final SerializableString SIZE = new SerializedString("size");
+  private static final SerializableString TOTAL_ELEMENTS = new SerializedString("totalElements");
+  private static final SerializableString TOTAL_PAGES = new SerializedString("totalPages");
+  private static final SerializableString FIRST = new SerializedString("first");
+  private static final SerializableString LAST = new SerializedString("last");
+
+  public CompactPageJsonSerializer() {
+    super(Slice.class, false);
+  }
+
+  @Override
+  public void serialize(Slice<?> slice, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeStartObject(slice);
+    generator.writeFieldName(CONTENT);
+    generator.writeStartArray(slice, slice.getNumberOfElements());
+    for (Object element : slice.getContent()) {
+      provider.defaultSerializeValue(element, generator);
+    }
+    generator.writeEndArray();
+
+    generator.writeFieldName(NUMBER);
+    generator.writeNumber(slice.getNumber());
+    generator.writeFieldName(SIZE);
+    generator.writeNumber(slice.getSize());
+    if (slice instanceof Page) {
+      Page<?> page = (Page<?>) slice;
+      generator.writeFieldName(TOTAL_ELEMENTS);
+      generator.writeNumber(page.getTotalElements());
+      generator.writeFieldName(TOTAL_PAGES);
+      generator.writeNumber(page.getTotalPages());
+    }
+    generator.writeFieldName(FIRST);
+    generator.writeBoolean(slice.isFirst());
+    generator.writeFieldName(LAST);
+    generator.writeBoolean(slice.isLast());
+    generator.writeEndObject();
+  }
+}
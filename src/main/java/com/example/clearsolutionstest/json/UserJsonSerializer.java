@@ -0,0 +1,66 @@
+package com.example.clearsolutionstest.json;
+
+import com.example.clearsolutionstest.entity.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.util.Date;
+import org.springframework.boot.jackson.JsonComponent;
+
+/**
+ * Writes users field by field with names encoded once up front, instead of through the bean
+ * serializer's property introspection. The output matches the annotated entity: ignored fields
+ * are left out and nulls are written.
+ */
+@JsonComponent
+public class UserJsonSerializer extends StdSerializer<User> {
+
+  private static final SerializableString ID = new SerializedString("id");
+  private static final SerializableString EMAIL = new SerializedString("email");
+  private static final SerializableString FIRSTNAME = new SerializedString("firstname");
+  private static final SerializableString LASTNAME = new SerializedString("lastname");
+  private static final SerializableString BIRTH_DATE = new SerializedString("birthDate");
+  private static final SerializableString ADDRESS = new SerializedString("address");
+  private static final SerializableString PHONE_NUMBER = new SerializedString("phoneNumber");
+
+  public UserJsonSerializer() {
+    super(User.class);
+  }
+
+  @Override
+  public void serialize(User user, JsonGenerator generator, SerializerProvider provider)
+      throws IOException {
+    generator.writeStartObject(user);
+    generator.writeFieldName(ID);
+    if (user.getId() == null) {
+      generator.writeNull();
+    } else {
+      generator.writeNumber(user.getId());
+    }
+    writeString(generator, EMAIL, user.getEmail());
+    writeString(generator, FIRSTNAME, user.getFirstname());
+    writeString(generator, LASTNAME, user.getLastname());
+
+    // Stored users hold java.sql.Date and request bodies java.util.Date, which Jackson formats
+    // differently, so the date serializer is still chosen by the runtime class.
+    Date birthDate = user.getBirthDate();
+    generator.writeFieldName(BIRTH_DATE);
+    if (birthDate == null) {
+      generator.writeNull();
+    } else {
+      provider.findValueSerializer(birthDate.getClass()).serialize(birthDate, generator, provider);
+    }
+    writeString(generator, ADDRESS, user.getAddress());
+    writeString(generator, PHONE_NUMBER, user.getPhoneNumber());
+    generator.writeEndObject();
+  }
+
+  private static void writeString(JsonGenerator generator, SerializableString name, String value)
+      throws IOException {
+    generator.writeFieldName(name);
+    generator.writeString(value);
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.clearsolutionstest.pagination;
+
+import com.example.clearsolutionstest.entity.User;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+import lombok.Value;
+
+@Value
+public class UserSearchCursor {
+
+  LocalDate birthDate;
+  long id;
+
+  public static UserSearchCursor of(User user) {
+    LocalDate birthDate = Instant.ofEpochMilli(user.getBirthDate().getTime())
+        .atZone(ZoneId.systemDefault()).toLocalDate();
+    return new UserSearchCursor(birthDate, user.getId());
+  }
+
+  public static UserSearchCursor decode(String token) {
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = value.indexOf('|');
+      return new UserSearchCursor(LocalDate.parse(value.substring(0, separator)),
+          Long.parseLong(value.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid search cursor.");
+    }
+  }
+
+  public String encode() {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString((birthDate + "|" + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public Date birthDateAsDate() {
+    return java.sql.Date.valueOf(birthDate);
+  }
+}
@@ -0,0 +1,18 @@
+package com.example.clearsolutionstest.ratelimit;
+
+import lombok.Value;
+
+@Value
+public class RateLimit {
+
+  double permitsPerSecond;
+  int burst;
+
+  public boolean isUnlimited() {
+    return permitsPerSecond <= 0;
+  }
+
+  long emissionIntervalNanos() {
+    return (long) (1_000_000_000L / permitsPerSecond);
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.clearsolutionstest.ratelimit;
+
+import javax.servlet.http.HttpServletRequest;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum RateLimitedEndpoint {
+  SEARCH("search", false),
+  EXPORT("export", true),
+  BATCH("batch", true),
+  CHANGES("changes", false),
+  DEFAULT("default", false);
+
+  private final String key;
+  /** Long transfers, which get their own concurrency limit so they cannot starve the rest. */
+  private final boolean bulk;
+
+  public static RateLimitedEndpoint of(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    if (path.startsWith("/users/search")) {
+      return SEARCH;
+    }
+    if (path.startsWith("/users/export")) {
+      return EXPORT;
+    }
+    if (path.startsWith("/users/batch") || path.startsWith("/users/import")) {
+      return BATCH;
+    }
+    if (path.startsWith("/users/changes")) {
+      return CHANGES;
+    }
+    return DEFAULT;
+  }
+}
@@ -0,0 +1,211 @@
+package com.example.clearsolutionstest.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Applies a per-client token bucket for each endpoint and then a global concurrency limit.
+ * Buckets are kept with the generic cell rate algorithm: each one is a single {@link AtomicLong}
+ * holding the theoretical arrival time of the next request, updated with a CAS loop, so the hot
+ * path takes no locks.
+ *
+ * <p>Authenticated clients are identified by their principal. Anonymous ones are identified by
+ * the remote address, and the configured header only splits an address's traffic between the
+ * clients behind it: each gets the endpoint's limit, while the address as a whole gets
+ * {@code clientsPerAddress} times that, so changing the header never buys more than the address
+ * allows. A request that goes async keeps its concurrency permit until the async request
+ * completes; the change feed is left out of the concurrency limit, since its streams stay open
+ * for minutes and the feed bounds its subscribers itself. Bulk endpoints (export, batch and
+ * import) hold their permit for the whole transfer, so they draw from a separate, smaller limit
+ * and a few batch clients cannot take the permits that interactive requests need.
+ */
+public class RateLimitingFilter extends OncePerRequestFilter {
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final char SEPARATOR = '\u0000';
+
+  private final Map<RateLimitedEndpoint, RateLimit> limits;
+  private final Map<RateLimitedEndpoint, Cache<String, AtomicLong>> buckets =
+      new EnumMap<>(RateLimitedEndpoint.class);
+  private final Map<RateLimitedEndpoint, Cache<String, AtomicLong>> addressBuckets =
+      new EnumMap<>(RateLimitedEndpoint.class);
+  private final Semaphore concurrencyLimit;
+  private final Semaphore bulkConcurrencyLimit;
+  private final String clientHeader;
+  private final int clientsPerAddress;
+  private final MeterRegistry meterRegistry;
+  private final LongSupplier nanoClock;
+
+  public RateLimitingFilter(Map<RateLimitedEndpoint, RateLimit> limits,
+      int maxConcurrentRequests, int maxConcurrentBulkRequests, String clientHeader, int clientsPerAddress, long maxClients,
+      MeterRegistry meterRegistry, LongSupplier nanoClock) {
+    this.limits = new EnumMap<>(limits);
+    this.concurrencyLimit = new Semaphore(maxConcurrentRequests);
+    this.bulkConcurrencyLimit = new Semaphore(maxConcurrentBulkRequests);
+    this.clientHeader = clientHeader;
+    this.clientsPerAddress = clientsPerAddress;
+    this.meterRegistry = meterRegistry;
+    this.nanoClock = nanoClock;
+    for (Map.Entry<RateLimitedEndpoint, RateLimit> limit : this.limits.entrySet()) {
+      if (!limit.getValue().isUnlimited()) {
+        Duration idle = Duration.ofNanos(
+            limit.getValue().emissionIntervalNanos() * limit.getValue().getBurst());
+        buckets.put(limit.getKey(), Caffeine.newBuilder()
+            .maximumSize(maxClients)
+            .expireAfterAccess(idle.plusSeconds(1))
+            .build());
+        addressBuckets.put(limit.getKey(), Caffeine.newBuilder()
+            .maximumSize(maxClients)
+            .expireAfterAccess(idle.plusSeconds(1))
+            .build());
+      }
+    }
+    Gauge.builder("users.rate-limit.in-flight", concurrencyLimit,
+            semaphore -> maxConcurrentRequests - semaphore.availablePermits())
+        .tag("pool", "interactive")
+        .register(meterRegistry);
+    Gauge.builder("users.rate-limit.in-flight", bulkConcurrencyLimit,
+            semaphore -> maxConcurrentBulkRequests - semaphore.availablePermits())
+        .tag("pool", "bulk")
+        .register(meterRegistry);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    RateLimitedEndpoint endpoint = RateLimitedEndpoint.of(request);
+    long waitNanos = acquire(endpoint, request);
+    if (waitNanos > 0) {
+      reject(response, endpoint, HttpStatus.TOO_MANY_REQUESTS, "rate-limit", waitNanos);
+      return;
+    }
+    if (endpoint == RateLimitedEndpoint.CHANGES) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    Semaphore permits = endpoint.isBulk() ? bulkConcurrencyLimit : concurrencyLimit;
+    if (!permits.tryAcquire()) {
+      reject(response, endpoint, HttpStatus.SERVICE_UNAVAILABLE, "concurrency",
+          NANOS_PER_SECOND);
+      return;
+    }
+    boolean async = false;
+    try {
+      filterChain.doFilter(request, response);
+      async = request.isAsyncStarted();
+    } finally {
+      if (async) {
+        // The container completes an async request only after this dispatch returns, so the
+        // listener cannot miss the completion.
+        request.getAsyncContext().addListener(new PermitRelease(permits));
+      } else {
+        permits.release();
+      }
+    }
+  }
+
+  private long acquire(RateLimitedEndpoint endpoint, HttpServletRequest request) {
+    Principal principal = request.getUserPrincipal();
+    if (principal != null) {
+      return acquire(buckets.get(endpoint), limits.get(endpoint), 1,
+          "user:" + principal.getName());
+    }
+    String address = request.getRemoteAddr();
+    long waitNanos = acquire(addressBuckets.get(endpoint), limits.get(endpoint),
+        clientsPerAddress, address);
+    if (waitNanos > 0) {
+      return waitNanos;
+    }
+    String client = request.getHeader(clientHeader);
+    return acquire(buckets.get(endpoint), limits.get(endpoint), 1,
+        client == null || client.isEmpty() ? address : address + SEPARATOR + client);
+  }
+
+  private long acquire(Cache<String, AtomicLong> endpointBuckets, RateLimit limit, int share,
+      String key) {
+    if (endpointBuckets == null) {
+      return 0;
+    }
+    long interval = limit.emissionIntervalNanos() / share;
+    long tolerance = interval * limit.getBurst() * share;
+    long now = nanoClock.getAsLong();
+    AtomicLong theoreticalArrival = endpointBuckets.get(key, unused -> new AtomicLong(now));
+
+    while (true) {
+      long current = theoreticalArrival.get();
+      long next = Math.max(current, now) + interval;
+      long wait = next - now - tolerance;
+      if (wait > 0) {
+        return wait;
+      }
+      if (theoreticalArrival.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  private void reject(HttpServletResponse response, RateLimitedEndpoint endpoint,
+      HttpStatus status, String reason, long retryAfterNanos) {
+    meterRegistry.counter("users.rate-limit.rejections",
+        "endpoint", endpoint.getKey(), "reason", reason).increment();
+    long retryAfterSeconds = (retryAfterNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    response.setStatus(status.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+  }
+
+  private static class PermitRelease implements AsyncListener {
+
+    private final Semaphore permits;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    PermitRelease(Semaphore permits) {
+      this.permits = permits;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        permits.release();
+      }
+    }
+  }
+}
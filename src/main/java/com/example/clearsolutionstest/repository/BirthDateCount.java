@@ -0,0 +1,10 @@
+package com.example.clearsolutionstest.repository;
+
+import java.util.Date;
+
+public interface BirthDateCount {
+
+  Date getBirthDate();
+
+  Long getTotal();
+}
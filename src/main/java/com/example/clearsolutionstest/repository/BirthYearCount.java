@@ -0,0 +1,8 @@
+package com.example.clearsolutionstest.repository;
+
+public interface BirthYearCount {
+
+  Integer getYear();
+
+  Long getTotal();
+}
@@ -0,0 +1,201 @@
+package com.example.clearsolutionstest.repository;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import com.example.clearsolutionstest.service.UserCountEstimator;
+import com.example.clearsolutionstest.util.BirthDates;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/** Keeps users in the application's database, which is the default. */
+@Component
+@ConditionalOnProperty(name = "users.sharding.enabled", havingValue = "false",
+    matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaUserStore implements UserStore {
+
+  private final UserRepository repository;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final UserCountEstimator countEstimator;
+
+  @Override
+  public User insert(User user) {
+    return repository.save(user);
+  }
+
+  @Override
+  public boolean[] insert(List<User> users) {
+    boolean[] created = new boolean[users.size()];
+    try {
+      saveBatch(users);
+      Arrays.fill(created, true);
+    } catch (DataIntegrityViolationException e) {
+      // A concurrent writer took one of the emails; find it by inserting row by row.
+      for (int i = 0; i < users.size(); i++) {
+        User user = users.get(i);
+        user.setId(null);
+        user.setVersion(null);
+        try {
+          saveBatch(List.of(user));
+          created[i] = true;
+        } catch (DataIntegrityViolationException duplicate) {
+          created[i] = false;
+        }
+      }
+    }
+    return created;
+  }
+
+  private void saveBatch(List<User> batch) {
+    transactionTemplate.executeWithoutResult(status -> {
+      repository.saveAllAndFlush(batch);
+      entityManager.clear();
+    });
+  }
+
+  @Override
+  public Optional<User> findById(Long userId) {
+    return repository.findById(userId);
+  }
+
+  @Override
+  public boolean existsById(Long userId) {
+    return repository.existsById(userId);
+  }
+
+  @Override
+  public Set<String> findExistingEmails(Collection<String> emails) {
+    return repository.findExistingEmails(emails);
+  }
+
+  @Override
+  public User update(User user, String previousEmail) {
+    return repository.save(user);
+  }
+
+  @Override
+  public int updateNonRequiredData(Long userId, UserUpdateNonRequiredDataRequest request,
+      Long expectedVersion) {
+    return repository.updateNonRequiredData(userId, request, expectedVersion);
+  }
+
+  @Override
+  public Map<Long, Long> batchUpdateNonRequiredData(
+      Map<Long, UserUpdateNonRequiredDataRequest> updates, Map<Long, Integer> changes) {
+    return repository.batchUpdateNonRequiredData(updates, changes);
+  }
+
+  @Override
+  public int delete(Long userId) {
+    return repository.deleteUserById(userId);
+  }
+
+  @Override
+  public Page<User> findByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable) {
+    return repository.findUsersByBirthDateBetween(fromDate, toDate, pageable);
+  }
+
+  @Override
+  public Slice<User> findSliceByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable) {
+    return repository.findUserSliceByBirthDateBetween(fromDate, toDate, pageable);
+  }
+
+  @Override
+  public long estimateCountByBirthDateBetween(Date fromDate, Date toDate) {
+    return countEstimator.estimateCount(fromDate, toDate);
+  }
+
+  @Override
+  public Slice<User> findKeysetSliceByBirthDateBetween(Date fromDate, Date toDate,
+      Date afterBirthDate, Long afterId, int size) {
+    Pageable firstRows = PageRequest.of(0, size);
+    return afterBirthDate == null
+        ? repository.findKeysetFirstPage(fromDate, toDate, firstRows)
+        : repository.findKeysetPageAfter(fromDate, toDate, afterBirthDate, afterId, firstRows);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void forEachByBirthDateBetween(Date fromDate, Date toDate, Consumer<User> action) {
+    try (Stream<User> users = repository.streamUsersByBirthDateBetween(fromDate, toDate)) {
+      Iterator<User> iterator = users.iterator();
+      while (iterator.hasNext()) {
+        User user = iterator.next();
+        action.accept(user);
+        entityManager.detach(user);
+      }
+    }
+  }
+
+  @Override
+  public Page<Map<String, Object>> findFieldsByBirthDateBetween(Date fromDate, Date toDate,
+      List<String> fields, Pageable pageable) {
+    return repository.findFieldsByBirthDateBetween(fromDate, toDate, fields, pageable);
+  }
+
+  @Override
+  public long countByBirthMonthDayBetween(int fromMonthDay, int toMonthDay) {
+    return repository.countByBirthMonthDayBetween(fromMonthDay, toMonthDay);
+  }
+
+  @Override
+  public List<User> findByBirthMonthDayBetween(int fromMonthDay, int toMonthDay, long offset,
+      int limit) {
+    return repository.findByBirthMonthDayBetween(fromMonthDay, toMonthDay, offset, limit);
+  }
+
+  @Override
+  public Map<LocalDate, Long> countByBirthDate() {
+    return toMap(repository.countAllUsersByBirthDate());
+  }
+
+  @Override
+  public Map<LocalDate, Long> countByBirthDate(Date fromDate, Date toDate) {
+    return toMap(repository.countUsersByBirthDate(fromDate, toDate));
+  }
+
+  private static Map<LocalDate, Long> toMap(List<BirthDateCount> counts) {
+    Map<LocalDate, Long> byBirthDate = new TreeMap<>();
+    for (BirthDateCount count : counts) {
+      byBirthDate.merge(BirthDates.toLocalDate(count.getBirthDate()), count.getTotal(),
+          Long::sum);
+    }
+    return byBirthDate;
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void forEachLookupResult(Consumer<UserLookupResult> action) {
+    try (Stream<UserLookupResult> users = repository.streamLookupResults()) {
+      users.forEach(action);
+    }
+  }
+
+  @Override
+  public List<UserLookupResult> lookupByPattern(String pattern, int limit) {
+    return repository.lookupByPrefix(pattern, PageRequest.of(0, limit));
+  }
+}
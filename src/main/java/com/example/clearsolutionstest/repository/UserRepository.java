@@ -1,14 +1,91 @@
 package com.example.clearsolutionstest.repository;
 
 import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import javax.persistence.TemporalType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Temporal;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
   Page<User> findUsersByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable);
+
+  Slice<User> findUserSliceByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable);
+
+  @Query("select year(u.birthDate) as year, count(u) as total from User u "
+      + "where u.birthDate between :fromDate and :toDate group by year(u.birthDate)")
+  List<BirthYearCount> countUsersByBirthYear(@Param("fromDate") Date fromDate,
+      @Param("toDate") Date toDate);
+
+  @Query("select u.birthDate as birthDate, count(u) as total from User u "
+      + "where u.birthDate between :fromDate and :toDate group by u.birthDate")
+  List<BirthDateCount> countUsersByBirthDate(@Param("fromDate") Date fromDate,
+      @Param("toDate") Date toDate);
+
+  @Query("select u.birthDate as birthDate, count(u) as total from User u group by u.birthDate")
+  List<BirthDateCount> countAllUsersByBirthDate();
+
+  @Query("select u from User u where u.birthDate between :fromDate and :toDate "
+      + "order by u.birthDate, u.id")
+  Slice<User> findKeysetFirstPage(@Param("fromDate") Date fromDate,
+      @Param("toDate") Date toDate, Pageable pageable);
+
+  @Query("select u from User u where u.birthDate between :fromDate and :toDate "
+      + "and (u.birthDate > :afterBirthDate or (u.birthDate = :afterBirthDate and u.id > :afterId)) "
+      + "order by u.birthDate, u.id")
+  Slice<User> findKeysetPageAfter(@Param("fromDate") Date fromDate, @Param("toDate") Date toDate,
+      @Param("afterBirthDate") @Temporal(TemporalType.DATE) Date afterBirthDate,
+      @Param("afterId") Long afterId, Pageable pageable);
+
+  @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+  @Query("select u from User u where u.birthDate between :fromDate and :toDate "
+      + "order by u.birthDate, u.id")
+  Stream<User> streamUsersByBirthDateBetween(@Param("fromDate") Date fromDate,
+      @Param("toDate") Date toDate);
+
+  @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+  @Query("select new com.example.clearsolutionstest.response.UserLookupResult("
+      + "u.id, u.email, u.firstname, u.lastname) from User u")
+  Stream<UserLookupResult> streamLookupResults();
+
+  @Query("select new com.example.clearsolutionstest.response.UserLookupResult("
+      + "u.id, u.email, u.firstname, u.lastname) from User u "
+      + "where lower(u.email) like :prefix escape '\\' "
+      + "or lower(u.firstname) like :prefix escape '\\' "
+      + "or lower(u.lastname) like :prefix escape '\\' order by u.email")
+  List<UserLookupResult> lookupByPrefix(@Param("prefix") String prefix, Pageable pageable);
+
+  long countByBirthMonthDayBetween(Integer fromMonthDay, Integer toMonthDay);
+
+  @Transactional
+  @Modifying
+  @Query("update User u set u.birthMonthDay = month(u.birthDate) * 100 + day(u.birthDate) "
+      + "where u.birthMonthDay is null and u.birthDate is not null")
+  int backfillBirthMonthDay();
+
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("delete from User u where u.id = :id")
+  int deleteUserById(@Param("id") Long id);
+
+  @Query("select u.email from User u where u.email in :emails")
+  Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
@@ -0,0 +1,35 @@
+package com.example.clearsolutionstest.repository;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface UserRepositoryCustom {
+
+  int updateNonRequiredData(Long userId, UserUpdateNonRequiredDataRequest request,
+      Long expectedVersion);
+
+  /**
+   * Applies merged updates, raising each user's version by its number of merged changes, and
+   * returns the version each updated user was left with.
+   */
+  Map<Long, Long> batchUpdateNonRequiredData(Map<Long, UserUpdateNonRequiredDataRequest> updates,
+      Map<Long, Integer> changes);
+
+  List<User> findByBirthMonthDayBetween(int fromMonthDay, int toMonthDay, long offset,
+      int limit);
+
+  Page<Map<String, Object>> findFieldsByBirthDateBetween(Date fromDate, Date toDate,
+      List<String> fields, Pageable pageable);
+
+  void forEachUser(Consumer<User> action);
+
+  int[] insertWithIds(List<User> users);
+
+  void restartIdSequence(long nextValue);
+}
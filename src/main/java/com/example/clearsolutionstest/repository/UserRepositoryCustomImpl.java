@@ -0,0 +1,176 @@
+package com.example.clearsolutionstest.repository;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+  private final EntityManager entityManager;
+  private final JdbcTemplate jdbcTemplate;
+
+  @Override
+  @Transactional
+  public int updateNonRequiredData(Long userId, UserUpdateNonRequiredDataRequest request,
+      Long expectedVersion) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<User> update = builder.createCriteriaUpdate(User.class);
+    Root<User> user = update.from(User.class);
+
+    if (request.getAddress() != null) {
+      update.set(user.<String>get("address"), request.getAddress());
+    }
+    if (request.getPhoneNumber() != null) {
+      update.set(user.<String>get("phoneNumber"), request.getPhoneNumber());
+    }
+    Path<Long> version = user.get("version");
+    update.set(version, builder.sum(version, 1L));
+    update.where(expectedVersion == null
+        ? builder.equal(user.get("id"), userId)
+        : builder.and(builder.equal(user.get("id"), userId),
+            builder.equal(version, expectedVersion)));
+
+    entityManager.flush();
+    int updated = entityManager.createQuery(update).executeUpdate();
+    entityManager.clear();
+    return updated;
+  }
+
+  @Override
+  @Transactional
+  public Map<Long, Long> batchUpdateNonRequiredData(
+      Map<Long, UserUpdateNonRequiredDataRequest> updates, Map<Long, Integer> changes) {
+    List<Object[]> rows = new ArrayList<>(updates.size());
+    updates.forEach((userId, request) -> rows.add(new Object[] {request.getAddress(),
+        request.getPhoneNumber(), changes.getOrDefault(userId, 1), userId}));
+    jdbcTemplate.batchUpdate("update users set address = coalesce(?, address), "
+        + "phone_number = coalesce(?, phone_number), version = version + ? where id = ?", rows);
+
+    // The updated rows stay locked until commit, so these are the versions being committed.
+    Map<Long, Long> versions = new LinkedHashMap<>();
+    String placeholders = updates.keySet().stream().map(id -> "?")
+        .collect(Collectors.joining(", "));
+    jdbcTemplate.query("select id, version from users where id in (" + placeholders + ")",
+        (RowCallbackHandler) row -> versions.put(row.getLong("id"), row.getLong("version")),
+        updates.keySet().toArray());
+    return versions;
+  }
+
+  @Override
+  public void forEachUser(Consumer<User> action) {
+    jdbcTemplate.query(connection -> {
+      PreparedStatement statement = connection.prepareStatement("select id, email, first_name, "
+          + "last_name, birth_date, address, phone_number, version from users order by id");
+      statement.setFetchSize(1000);
+      return statement;
+    }, (RowCallbackHandler) row -> {
+      User user = new User();
+      user.setId(row.getLong("id"));
+      user.setEmail(row.getString("email"));
+      user.setFirstname(row.getString("first_name"));
+      user.setLastname(row.getString("last_name"));
+      user.setBirthDate(row.getDate("birth_date"));
+      user.setAddress(row.getString("address"));
+      user.setPhoneNumber(row.getString("phone_number"));
+      user.setVersion(row.getObject("version", Long.class));
+      action.accept(user);
+    });
+  }
+
+  @Override
+  public int[] insertWithIds(List<User> users) {
+    List<Object[]> rows = new ArrayList<>(users.size());
+    for (User user : users) {
+      java.sql.Date birthDate = user.getBirthDate() == null
+          ? null : new java.sql.Date(user.getBirthDate().getTime());
+      rows.add(new Object[] {user.getId(), user.getEmail(), user.getFirstname(),
+          user.getLastname(), birthDate, user.getBirthMonthDay(), user.getAddress(),
+          user.getPhoneNumber(), user.getVersion()});
+    }
+    return jdbcTemplate.batchUpdate("insert into users (id, email, first_name, last_name, "
+        + "birth_date, birth_month_day, address, phone_number, version) "
+        + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+  }
+
+  @Override
+  public void restartIdSequence(long nextValue) {
+    jdbcTemplate.execute("alter sequence users_seq restart with " + nextValue);
+  }
+
+  @Override
+  public List<User> findByBirthMonthDayBetween(int fromMonthDay, int toMonthDay, long offset,
+      int limit) {
+    return entityManager.createQuery("select u from User u "
+            + "where u.birthMonthDay between :fromMonthDay and :toMonthDay "
+            + "order by u.birthMonthDay, u.id", User.class)
+        .setParameter("fromMonthDay", fromMonthDay)
+        .setParameter("toMonthDay", toMonthDay)
+        .setFirstResult((int) offset)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  @Override
+  public Page<Map<String, Object>> findFieldsByBirthDateBetween(Date fromDate, Date toDate,
+      List<String> fields, Pageable pageable) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = builder.createTupleQuery();
+    Root<User> user = query.from(User.class);
+    List<Selection<?>> selections = fields.stream()
+        .map(field -> user.get(field).alias(field))
+        .collect(Collectors.toList());
+    query.multiselect(selections)
+        .where(builder.between(user.<Date>get("birthDate"), fromDate, toDate))
+        .orderBy(QueryUtils.toOrders(pageable.getSort(), user, builder));
+
+    List<Map<String, Object>> content = entityManager.createQuery(query)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList().stream()
+        .map(tuple -> toMap(tuple, fields))
+        .collect(Collectors.toList());
+    return PageableExecutionUtils.getPage(content, pageable,
+        () -> countByBirthDateBetween(fromDate, toDate));
+  }
+
+  private long countByBirthDateBetween(Date fromDate, Date toDate) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Root<User> user = query.from(User.class);
+    query.select(builder.count(user))
+        .where(builder.between(user.<Date>get("birthDate"), fromDate, toDate));
+    return entityManager.createQuery(query).getSingleResult();
+  }
+
+  private static Map<String, Object> toMap(Tuple tuple, List<String> fields) {
+    Map<String, Object> values = new LinkedHashMap<>(fields.size() * 2);
+    for (String field : fields) {
+      values.put(field, tuple.get(field));
+    }
+    return values;
+  }
+}
@@ -0,0 +1,95 @@
+package com.example.clearsolutionstest.repository;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Where users are stored. {@link JpaUserStore} keeps them in the application's database through
+ * {@link UserRepository}, and {@code ShardedUserStore} spreads them over several databases when
+ * {@code users.sharding.enabled} is set; exactly one of the two is a bean.
+ */
+public interface UserStore {
+
+  /** Stores a new user, or throws {@code DataIntegrityViolationException} if its email is used. */
+  User insert(User user);
+
+  /**
+   * Stores new users and assigns their ids. Returns, for each user, whether it was stored; a user
+   * is not stored when its email is taken.
+   */
+  boolean[] insert(List<User> users);
+
+  Optional<User> findById(Long userId);
+
+  boolean existsById(Long userId);
+
+  Set<String> findExistingEmails(Collection<String> emails);
+
+  /**
+   * Writes every field of a user loaded from this store, or throws
+   * {@code OptimisticLockingFailureException} if it changed since it was loaded.
+   */
+  User update(User user, String previousEmail);
+
+  int updateNonRequiredData(Long userId, UserUpdateNonRequiredDataRequest request,
+      Long expectedVersion);
+
+  /**
+   * Applies merged updates, raising each user's version by its number of merged changes, and
+   * returns the version each updated user was left with.
+   */
+  Map<Long, Long> batchUpdateNonRequiredData(Map<Long, UserUpdateNonRequiredDataRequest> updates,
+      Map<Long, Integer> changes);
+
+  int delete(Long userId);
+
+  Page<User> findByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable);
+
+  Slice<User> findSliceByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable);
+
+  /** The number of users born in the range, or an estimate when counting exactly is costly. */
+  long estimateCountByBirthDateBetween(Date fromDate, Date toDate);
+
+  /**
+   * Returns up to {@code size} users born in the range, ordered by birth date and id, that come
+   * after the given position, or from the start when {@code afterBirthDate} is null.
+   */
+  Slice<User> findKeysetSliceByBirthDateBetween(Date fromDate, Date toDate, Date afterBirthDate,
+      Long afterId, int size);
+
+  /** Passes every user born in the range to {@code action}, ordered by birth date and id. */
+  void forEachByBirthDateBetween(Date fromDate, Date toDate, Consumer<User> action);
+
+  Page<Map<String, Object>> findFieldsByBirthDateBetween(Date fromDate, Date toDate,
+      List<String> fields, Pageable pageable);
+
+  long countByBirthMonthDayBetween(int fromMonthDay, int toMonthDay);
+
+  /** Returns users whose birthday is in the range, ordered by birthday and id. */
+  List<User> findByBirthMonthDayBetween(int fromMonthDay, int toMonthDay, long offset,
+      int limit);
+
+  Map<LocalDate, Long> countByBirthDate();
+
+  Map<LocalDate, Long> countByBirthDate(Date fromDate, Date toDate);
+
+  void forEachLookupResult(Consumer<UserLookupResult> action);
+
+  /**
+   * Returns users whose email, first name or last name matches the {@code LIKE} pattern, ordered
+   * by email.
+   */
+  List<UserLookupResult> lookupByPattern(String pattern, int limit);
+}
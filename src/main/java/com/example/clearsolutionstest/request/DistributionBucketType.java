@@ -0,0 +1,45 @@
+package com.example.clearsolutionstest.request;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+public enum DistributionBucketType {
+  YEAR {
+    @Override
+    public int bucketOf(LocalDate birthDate, LocalDate today, int bandWidth) {
+      return birthDate.getYear();
+    }
+
+    @Override
+    public String label(int bucket, int bandWidth) {
+      return Integer.toString(bucket);
+    }
+  },
+  MONTH {
+    @Override
+    public int bucketOf(LocalDate birthDate, LocalDate today, int bandWidth) {
+      return birthDate.getYear() * 100 + birthDate.getMonthValue();
+    }
+
+    @Override
+    public String label(int bucket, int bandWidth) {
+      return String.format("%04d-%02d", bucket / 100, bucket % 100);
+    }
+  },
+  AGE_BAND {
+    @Override
+    public int bucketOf(LocalDate birthDate, LocalDate today, int bandWidth) {
+      int age = Period.between(birthDate, today).getYears();
+      return Math.floorDiv(age, bandWidth) * bandWidth;
+    }
+
+    @Override
+    public String label(int bucket, int bandWidth) {
+      return bucket + "-" + (bucket + bandWidth - 1);
+    }
+  };
+
+  public abstract int bucketOf(LocalDate birthDate, LocalDate today, int bandWidth);
+
+  public abstract String label(int bucket, int bandWidth);
+}
@@ -0,0 +1,12 @@
+package com.example.clearsolutionstest.request;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+  NDJSON("application/x-ndjson"), CSV("text/csv");
+
+  private final String contentType;
+}
@@ -0,0 +1,5 @@
+package com.example.clearsolutionstest.request;
+
+public enum SearchPagination {
+  OFFSET, KEYSET, SLICE, APPROXIMATE
+}
@@ -0,0 +1,19 @@
+package com.example.clearsolutionstest.response;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Value;
+
+@Value
+public class CacheStatistics {
+
+  long size;
+  long hitCount;
+  long missCount;
+  double hitRate;
+  long evictionCount;
+
+  public static CacheStatistics of(long size, CacheStats stats) {
+    return new CacheStatistics(size, stats.hitCount(), stats.missCount(), stats.hitRate(),
+        stats.evictionCount());
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.clearsolutionstest.response;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * The API model of the pages and slices written by
+ * {@link com.example.clearsolutionstest.json.CompactPageJsonSerializer}; responses carry
+ * {@code Page} and {@code Slice} values, and this class only documents their JSON shape.
+ */
+@Value
+@ApiModel(description = "A page or slice of results. Every Page and Slice response has this "
+    + "shape. The pageable, sort, numberOfElements and empty properties of the earlier Spring "
+    + "Data bean output are no longer written; the paging request and the content carry the "
+    + "same information.")
+public class CompactPage<T> {
+
+  @ApiModelProperty(value = "The results on this page.", position = 1)
+  List<T> content;
+
+  @ApiModelProperty(value = "Zero-based page number.", position = 2)
+  int number;
+
+  @ApiModelProperty(value = "Requested page size.", position = 3)
+  int size;
+
+  @ApiModelProperty(value = "Total number of results. Only written for pages, not for SLICE "
+      + "pagination.", position = 4)
+  Long totalElements;
+
+  @ApiModelProperty(value = "Total number of pages. Only written for pages, not for SLICE "
+      + "pagination.", position = 5)
+  Integer totalPages;
+
+  @ApiModelProperty(value = "Whether this is the first page.", position = 6)
+  boolean first;
+
+  @ApiModelProperty(value = "Whether this is the last page.", position = 7)
+  boolean last;
+}
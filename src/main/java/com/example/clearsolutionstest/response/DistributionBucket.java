@@ -0,0 +1,10 @@
+package com.example.clearsolutionstest.response;
+
+import lombok.Value;
+
+@Value
+public class DistributionBucket {
+
+  String bucket;
+  long count;
+}
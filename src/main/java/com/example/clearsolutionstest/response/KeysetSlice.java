@@ -0,0 +1,13 @@
+package com.example.clearsolutionstest.response;
+
+import java.util.List;
+import lombok.Value;
+
+@Value
+public class KeysetSlice<T> {
+
+  List<T> content;
+  int size;
+  boolean hasNext;
+  String nextCursor;
+}
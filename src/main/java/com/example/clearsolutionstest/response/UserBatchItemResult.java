@@ -0,0 +1,32 @@
+package com.example.clearsolutionstest.response;
+
+import java.util.Collections;
+import java.util.List;
+import lombok.Value;
+
+@Value
+public class UserBatchItemResult {
+
+  public enum Status {
+    CREATED, INVALID, DUPLICATE_EMAIL
+  }
+
+  int index;
+  Status status;
+  Long id;
+  String email;
+  List<String> errors;
+
+  public static UserBatchItemResult created(int index, Long id, String email) {
+    return new UserBatchItemResult(index, Status.CREATED, id, email, Collections.emptyList());
+  }
+
+  public static UserBatchItemResult invalid(int index, String email, List<String> errors) {
+    return new UserBatchItemResult(index, Status.INVALID, null, email, errors);
+  }
+
+  public static UserBatchItemResult duplicateEmail(int index, String email) {
+    return new UserBatchItemResult(index, Status.DUPLICATE_EMAIL, null, email,
+        Collections.singletonList("user.email.duplicate"));
+  }
+}
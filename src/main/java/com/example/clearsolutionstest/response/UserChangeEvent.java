@@ -0,0 +1,15 @@
+package com.example.clearsolutionstest.response;
+
+import com.example.clearsolutionstest.entity.User;
+import java.time.Instant;
+import lombok.Value;
+
+@Value
+public class UserChangeEvent {
+
+  long sequence;
+  UserChangeType type;
+  Long userId;
+  User user;
+  Instant occurredAt;
+}
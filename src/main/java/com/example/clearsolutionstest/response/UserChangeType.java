@@ -0,0 +1,5 @@
+package com.example.clearsolutionstest.response;
+
+public enum UserChangeType {
+  CREATED, UPDATED, DELETED
+}
@@ -0,0 +1,21 @@
+package com.example.clearsolutionstest.response;
+
+import lombok.Value;
+
+@Value
+public class UserImportSummary {
+
+  long rows;
+  long created;
+  long rejected;
+  boolean completed;
+  String error;
+
+  public static UserImportSummary completed(long rows, long created, long rejected) {
+    return new UserImportSummary(rows, created, rejected, true, null);
+  }
+
+  public static UserImportSummary failed(long rows, long created, long rejected, String error) {
+    return new UserImportSummary(rows, created, rejected, false, error);
+  }
+}
@@ -0,0 +1,18 @@
+package com.example.clearsolutionstest.response;
+
+import com.example.clearsolutionstest.entity.User;
+import lombok.Value;
+
+@Value
+public class UserLookupResult {
+
+  Long id;
+  String email;
+  String firstname;
+  String lastname;
+
+  public static UserLookupResult of(User user) {
+    return new UserLookupResult(user.getId(), user.getEmail(), user.getFirstname(),
+        user.getLastname());
+  }
+}
@@ -0,0 +1,85 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.repository.UserStore;
+import com.example.clearsolutionstest.util.BirthDates;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional in-memory count of users per birth date. It is loaded once from the database when the
+ * application is ready and then kept up to date by {@link UserService} on every create, update
+ * and delete, so distribution requests do not have to touch the table. The totals are loaded into
+ * the live counts, so changes recorded while the query runs are kept; changes recorded before it
+ * starts are already part of its totals and are dropped. Reads should only use the counts once
+ * {@link #isLoaded()}.
+ */
+@Component
+public class BirthDateHistogram {
+
+  private final UserStore store;
+  private final boolean enabled;
+  private final ConcurrentSkipListMap<LocalDate, LongAdder> counts =
+      new ConcurrentSkipListMap<>();
+  private volatile boolean loaded;
+
+  public BirthDateHistogram(UserStore store,
+      @Value("${users.distribution.in-memory}") boolean enabled) {
+    this.store = store;
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    if (!enabled || loaded) {
+      return;
+    }
+    counts.clear();
+    store.countByBirthDate().forEach(this::add);
+    loaded = true;
+  }
+
+  public NavigableMap<LocalDate, LongAdder> countsBetween(LocalDate from, LocalDate to) {
+    return counts.subMap(from, true, to, true);
+  }
+
+  public void recordCreated(Date birthDate) {
+    add(birthDate, 1);
+  }
+
+  public void recordDeleted(Date birthDate) {
+    add(birthDate, -1);
+  }
+
+  public void recordChanged(Date oldBirthDate, Date newBirthDate) {
+    if (oldBirthDate == null || newBirthDate == null
+        || oldBirthDate.getTime() != newBirthDate.getTime()) {
+      add(oldBirthDate, -1);
+      add(newBirthDate, 1);
+    }
+  }
+
+  private void add(Date birthDate, int delta) {
+    if (enabled && birthDate != null) {
+      add(BirthDates.toLocalDate(birthDate), delta);
+    }
+  }
+
+  private void add(LocalDate birthDate, long delta) {
+    counts.computeIfAbsent(birthDate, date -> new LongAdder()).add(delta);
+  }
+}
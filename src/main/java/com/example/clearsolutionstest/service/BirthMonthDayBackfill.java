@@ -0,0 +1,23 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills {@code birth_month_day} for rows written before the column existed. New and updated rows
+ * maintain it through the entity lifecycle callbacks.
+ */
+@Component
+@RequiredArgsConstructor
+public class BirthMonthDayBackfill implements ApplicationRunner {
+
+  private final UserRepository repository;
+
+  @Override
+  public void run(ApplicationArguments args) {
+    repository.backfillBirthMonthDay();
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.entity.User;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Translates "birthday within the next N days" into at most two ranges of
+ * {@link User#getBirthMonthDay()} keys, ordered by how soon the birthday comes. A window that
+ * crosses New Year is split in two. People born on February 29 are included when a non-leap
+ * window ends on February 28.
+ */
+@Value
+public class BirthdayWindow {
+
+  private static final int FIRST_DAY = 101;
+  private static final int LEAP_DAY = 229;
+  private static final int LAST_DAY = 1231;
+  private static final int DAYS_IN_YEAR = 365;
+
+  int fromMonthDay;
+  int toMonthDay;
+
+  public static List<BirthdayWindow> of(LocalDate today, int withinDays) {
+    if (withinDays < 0) {
+      throw new IllegalArgumentException("'withinDays' must not be negative.");
+    }
+    if (withinDays >= DAYS_IN_YEAR) {
+      return List.of(new BirthdayWindow(FIRST_DAY, LAST_DAY));
+    }
+
+    LocalDate lastDay = today.plusDays(withinDays);
+    int from = User.toBirthMonthDay(today);
+    int to = User.toBirthMonthDay(lastDay);
+    if (lastDay.getMonth() == Month.FEBRUARY && lastDay.getDayOfMonth() == 28
+        && !lastDay.isLeapYear()) {
+      to = LEAP_DAY;
+    }
+    if (lastDay.getYear() == today.getYear()) {
+      return List.of(new BirthdayWindow(from, to));
+    }
+    return List.of(new BirthdayWindow(from, LAST_DAY), new BirthdayWindow(FIRST_DAY, to));
+  }
+}
@@ -0,0 +1,294 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.response.UserChangeEvent;
+import com.example.clearsolutionstest.response.UserChangeType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Publishes user mutations to Server-Sent Events subscribers. Writers only claim a sequence
+ * number and store the event in a fixed-size ring, so they never wait for subscribers. A
+ * dispatcher thread hands each subscriber's new events to a sender thread, at most one send at a
+ * time per subscriber, so a slow client only delays itself. A subscriber that falls more than the
+ * ring capacity behind, or resumes from an id that is no longer held, receives a {@code resync}
+ * event and is disconnected; one whose send has been stuck longer than the send timeout is
+ * disconnected once the send returns and gets nothing more in the meantime.
+ */
+@Slf4j
+@Component
+public class UserChangeFeed {
+
+  static final String RESYNC_EVENT = "resync";
+
+  private final AtomicReferenceArray<UserChangeEvent> ring;
+  private final int mask;
+  private final AtomicLong nextSequence = new AtomicLong(1);
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+  private final int maxSubscribers;
+  private final int maxBatch;
+  private final Duration pollInterval;
+  private final Duration heartbeatInterval;
+  private final Duration emitterTimeout;
+  private final Duration sendTimeout;
+  private final Executor senders;
+  private final Counter resyncs;
+  private final Counter stalls;
+  private ScheduledExecutorService dispatcher;
+
+  @Autowired
+  public UserChangeFeed(MeterRegistry meterRegistry,
+      @Value("${users.changes.capacity}") int capacity,
+      @Value("${users.changes.max-subscribers}") int maxSubscribers,
+      @Value("${users.changes.max-batch}") int maxBatch,
+      @Value("${users.changes.poll-interval}") Duration pollInterval,
+      @Value("${users.changes.heartbeat-interval}") Duration heartbeatInterval,
+      @Value("${users.changes.emitter-timeout}") Duration emitterTimeout,
+      @Value("${users.changes.send-timeout}") Duration sendTimeout) {
+    // Every subscriber has at most one send running, and stalled subscribers keep counting
+    // towards the limit until their send returns, so the pool never has to queue.
+    this(meterRegistry, capacity, maxSubscribers, maxBatch, pollInterval, heartbeatInterval,
+        emitterTimeout, sendTimeout, new ThreadPoolExecutor(0, maxSubscribers, 60,
+            TimeUnit.SECONDS, new SynchronousQueue<>(),
+            new CustomizableThreadFactory("users-change-feed-send-")));
+  }
+
+  UserChangeFeed(MeterRegistry meterRegistry, int capacity, int maxSubscribers, int maxBatch,
+      Duration pollInterval, Duration heartbeatInterval, Duration emitterTimeout,
+      Duration sendTimeout, Executor senders) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("'users.changes.capacity' must be positive.");
+    }
+    int size = Integer.highestOneBit(capacity);
+    size = size == capacity ? size : size << 1;
+    this.ring = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.maxSubscribers = maxSubscribers;
+    this.maxBatch = maxBatch;
+    this.pollInterval = pollInterval;
+    this.heartbeatInterval = heartbeatInterval;
+    this.emitterTimeout = emitterTimeout;
+    this.sendTimeout = sendTimeout;
+    this.senders = senders;
+    this.resyncs = meterRegistry.counter("users.changes.resyncs");
+    this.stalls = meterRegistry.counter("users.changes.stalled-subscribers");
+    Gauge.builder("users.changes.subscribers", subscribers, Set::size)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    dispatcher = Executors.newSingleThreadScheduledExecutor(
+        new CustomizableThreadFactory("users-change-feed-"));
+    dispatcher.scheduleWithFixedDelay(this::dispatchQuietly, pollInterval.toMillis(),
+        pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    dispatcher.shutdown();
+    dispatcher.awaitTermination(pollInterval.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+    if (senders instanceof ExecutorService) {
+      ((ExecutorService) senders).shutdownNow();
+    }
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    subscribers.clear();
+  }
+
+  public void publishCreated(User user) {
+    publish(UserChangeType.CREATED, user.getId(), user);
+  }
+
+  public void publishUpdated(User user) {
+    publish(UserChangeType.UPDATED, user.getId(), user);
+  }
+
+  public void publishDeleted(Long userId) {
+    publish(UserChangeType.DELETED, userId, null);
+  }
+
+  UserChangeEvent publish(UserChangeType type, Long userId, User user) {
+    long sequence = nextSequence.getAndIncrement();
+    UserChangeEvent event = new UserChangeEvent(sequence, type, userId, user, Instant.now());
+    ring.set(slot(sequence), event);
+    return event;
+  }
+
+  /**
+   * Opens a subscription. Without {@code lastEventId} only events published from now on are
+   * delivered; otherwise delivery resumes right after that id.
+   */
+  public SseEmitter subscribe(Long lastEventId) {
+    if (subscribers.size() >= maxSubscribers) {
+      throw new IllegalStateException("Too many change feed subscribers.");
+    }
+    long head = nextSequence.get();
+    long from = lastEventId == null ? head : lastEventId + 1;
+    // An id from the future was issued before a restart, so the client's position is unknown.
+    Subscriber subscriber = new Subscriber(newEmitter(emitterTimeout.toMillis()),
+        from > head ? 0 : from);
+    subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    return subscriber.emitter;
+  }
+
+  /**
+   * Copies up to {@code max} events starting at {@code from} into {@code sink}. Returns false
+   * when {@code from} has already been overwritten, in which case the caller has to resync.
+   * Stops early at a slot whose writer has claimed a sequence but not stored the event yet.
+   */
+  public boolean read(long from, int max, List<UserChangeEvent> sink) {
+    if (from <= 0) {
+      return false;
+    }
+    long head = nextSequence.get();
+    if (head - from > ring.length()) {
+      return false;
+    }
+    for (long sequence = from; sequence < head && sink.size() < max; sequence++) {
+      UserChangeEvent event = ring.get(slot(sequence));
+      if (event == null || event.getSequence() < sequence) {
+        break;
+      }
+      if (event.getSequence() > sequence) {
+        sink.clear();
+        return false;
+      }
+      sink.add(event);
+    }
+    return true;
+  }
+
+  /** Returns the sequence number the next published event will get. */
+  public long nextSequence() {
+    return nextSequence.get();
+  }
+
+  int subscriberCount() {
+    return subscribers.size();
+  }
+
+  SseEmitter newEmitter(long timeoutMillis) {
+    return new SseEmitter(timeoutMillis);
+  }
+
+  void dispatch() {
+    long now = System.nanoTime();
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.stalled) {
+        continue;
+      }
+      if (!subscriber.sending.compareAndSet(false, true)) {
+        if (now - subscriber.sendStartedNanos > sendTimeout.toNanos()) {
+          subscriber.stalled = true;
+          stalls.increment();
+          log.warn("Disconnecting a change feed subscriber whose send has been stuck for over {}",
+              sendTimeout);
+        }
+        continue;
+      }
+      subscriber.sendStartedNanos = now;
+      try {
+        senders.execute(() -> send(subscriber, now));
+      } catch (RejectedExecutionException e) {
+        subscriber.sending.set(false);
+      }
+    }
+  }
+
+  private void send(Subscriber subscriber, long now) {
+    try {
+      deliver(subscriber, now);
+      if (subscriber.stalled) {
+        subscribers.remove(subscriber);
+        subscriber.emitter.complete();
+      }
+    } catch (IOException | IllegalStateException e) {
+      subscribers.remove(subscriber);
+      subscriber.emitter.completeWithError(e);
+    } finally {
+      subscriber.sending.set(false);
+    }
+  }
+
+  private void dispatchQuietly() {
+    try {
+      dispatch();
+    } catch (RuntimeException e) {
+      log.error("Failed to dispatch user change events", e);
+    }
+  }
+
+  private void deliver(Subscriber subscriber, long now) throws IOException {
+    List<UserChangeEvent> events = new ArrayList<>();
+    if (!read(subscriber.nextSequence, maxBatch, events)) {
+      subscribers.remove(subscriber);
+      resyncs.increment();
+      subscriber.emitter.send(SseEmitter.event().name(RESYNC_EVENT)
+          .id(Long.toString(nextSequence.get() - 1))
+          .data("The change feed position is no longer available; reload and resubscribe."));
+      subscriber.emitter.complete();
+      return;
+    }
+    for (UserChangeEvent event : events) {
+      subscriber.emitter.send(SseEmitter.event().id(Long.toString(event.getSequence()))
+          .name(event.getType().name()).data(event, MediaType.APPLICATION_JSON));
+      subscriber.nextSequence = event.getSequence() + 1;
+    }
+    if (!events.isEmpty()) {
+      subscriber.lastSentNanos = now;
+    } else if (now - subscriber.lastSentNanos >= heartbeatInterval.toNanos()) {
+      subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+      subscriber.lastSentNanos = now;
+    }
+  }
+
+  private int slot(long sequence) {
+    return (int) (sequence & mask);
+  }
+
+  private static class Subscriber {
+
+    private final SseEmitter emitter;
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private volatile long nextSequence;
+    private volatile long lastSentNanos = System.nanoTime();
+    private volatile long sendStartedNanos;
+    private volatile boolean stalled;
+
+    Subscriber(SseEmitter emitter, long nextSequence) {
+      this.emitter = emitter;
+      this.nextSequence = nextSequence;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.repository.BirthYearCount;
+import com.example.clearsolutionstest.repository.UserRepository;
+import com.example.clearsolutionstest.util.BirthDates;
+import com.github.benmanes.caffeine.cache.Cache;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Estimates the number of users in a birth-date range from per-year counts that are cached for a
+ * while, prorating the partially covered years at both ends of the range.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCountEstimator {
+
+  private final UserRepository repository;
+  private final Cache<Integer, Long> birthYearCountCache;
+
+  public long estimateCount(Date fromDate, Date toDate) {
+    LocalDate from = BirthDates.toLocalDate(fromDate);
+    LocalDate to = BirthDates.toLocalDate(toDate);
+    List<Integer> years = IntStream.rangeClosed(from.getYear(), to.getYear()).boxed()
+        .collect(Collectors.toList());
+    Map<Integer, Long> counts = birthYearCountCache.getAll(years, this::loadCounts);
+
+    double total = 0;
+    for (Integer year : years) {
+      LocalDate start = year == from.getYear() ? from : LocalDate.ofYearDay(year, 1);
+      LocalDate end = year == to.getYear() ? to : LocalDate.of(year, 12, 31);
+      long coveredDays = ChronoUnit.DAYS.between(start, end) + 1;
+      total += (double) counts.get(year) * coveredDays / Year.of(year).length();
+    }
+    return Math.round(total);
+  }
+
+  private Map<Integer, Long> loadCounts(Iterable<? extends Integer> years) {
+    Map<Integer, Long> counts = new HashMap<>();
+    int minYear = Integer.MAX_VALUE;
+    int maxYear = Integer.MIN_VALUE;
+    for (Integer year : years) {
+      counts.put(year, 0L);
+      minYear = Math.min(minYear, year);
+      maxYear = Math.max(maxYear, year);
+    }
+
+    Date fromDate = BirthDates.toDate(LocalDate.ofYearDay(minYear, 1));
+    Date toDate = BirthDates.toDate(LocalDate.of(maxYear, 12, 31));
+    for (BirthYearCount count : repository.countUsersByBirthYear(fromDate, toDate)) {
+      counts.computeIfPresent(count.getYear(), (year, zero) -> count.getTotal());
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserStore;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sorted in-memory index of normalised email, first name and last name, used for prefix lookups.
+ * A prefix query is a range scan over a skip list, so it never touches the database. The index
+ * holds at most {@code users.lookup.max-entries} users; once that is exceeded it is dropped for
+ * good and lookups fall back to a {@code LIKE 'x%'} query. They also use the query until the
+ * index has loaded, while changes made during the load are kept: loaded rows never replace an
+ * entry indexed meanwhile, nor bring back a user removed meanwhile.
+ */
+@Component
+public class UserLookupIndex {
+
+  private static final char SEPARATOR = '\u0000';
+  private static final char MAX_CHAR = '\uffff';
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+  private final UserStore store;
+  private final int maxEntries;
+  private final ConcurrentSkipListMap<String, UserLookupResult> terms =
+      new ConcurrentSkipListMap<>();
+  private final Map<Long, UserLookupResult> entries = new ConcurrentHashMap<>();
+  private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+  private volatile boolean loaded;
+  private volatile boolean degraded;
+
+  public UserLookupIndex(UserStore store, @Value("${users.lookup.max-entries}") int maxEntries) {
+    this.store = store;
+    this.maxEntries = maxEntries;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    store.forEachLookupResult(this::putLoaded);
+    loaded = true;
+    removedWhileLoading.clear();
+  }
+
+  public List<UserLookupResult> lookup(String query, int limit) {
+    String prefix = normalize(query);
+    if (prefix.isEmpty()) {
+      throw new IllegalArgumentException("The lookup query must not be blank.");
+    }
+    if (!isComplete()) {
+      return store.lookupByPattern(escapeLike(prefix) + "%", limit);
+    }
+
+    Map<Long, UserLookupResult> results = new LinkedHashMap<>();
+    for (UserLookupResult result : terms.subMap(prefix, prefix + MAX_CHAR).values()) {
+      results.putIfAbsent(result.getId(), result);
+      if (results.size() == limit) {
+        break;
+      }
+    }
+    return new ArrayList<>(results.values());
+  }
+
+  public void index(User user) {
+    put(UserLookupResult.of(user), false);
+  }
+
+  public void remove(Long userId) {
+    if (!loaded) {
+      removedWhileLoading.add(userId);
+    }
+    entries.computeIfPresent(userId, (id, previous) -> {
+      removeTerms(previous);
+      return null;
+    });
+  }
+
+  /** Whether lookups are served from the index rather than the database. */
+  public boolean isComplete() {
+    return loaded && !degraded;
+  }
+
+  private void putLoaded(UserLookupResult user) {
+    put(user, true);
+  }
+
+  private void put(UserLookupResult user, boolean fromLoad) {
+    if (user.getId() == null || degraded) {
+      return;
+    }
+    if (!entries.containsKey(user.getId()) && entries.size() >= maxEntries) {
+      degrade();
+      return;
+    }
+    entries.compute(user.getId(), (id, previous) -> {
+      if (fromLoad && (previous != null || removedWhileLoading.contains(id))) {
+        return previous;
+      }
+      if (previous != null) {
+        removeTerms(previous);
+      }
+      addTerm(user.getEmail(), user);
+      addTerm(user.getFirstname(), user);
+      addTerm(user.getLastname(), user);
+      return user;
+    });
+  }
+
+  /** Stops maintaining the index, since lookups will not read it again. */
+  private void degrade() {
+    degraded = true;
+    entries.clear();
+    terms.clear();
+  }
+
+  private void addTerm(String value, UserLookupResult user) {
+    if (value != null) {
+      terms.put(normalize(value) + SEPARATOR + user.getId(), user);
+    }
+  }
+
+  private void removeTerms(UserLookupResult user) {
+    for (String value : new String[] {user.getEmail(), user.getFirstname(), user.getLastname()}) {
+      if (value != null) {
+        terms.remove(normalize(value) + SEPARATOR + user.getId());
+      }
+    }
+  }
+
+  static String normalize(String value) {
+    String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+    return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  private static String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
@@ -0,0 +1,119 @@
+package com.example.clearsolutionstest.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets concurrent identical searches share one database query. The first caller for a key runs the
+ * query and the others wait for its result. When the result cache is enabled, results are also
+ * kept for a short TTL. Any user write bumps a generation that is part of every key, so searches
+ * started after a write never see results loaded before it. Shared results must be treated as
+ * read-only.
+ */
+@Component
+public class UserSearchCoalescer {
+
+  private final Cache<List<Object>, Object> searchResultCache;
+  private final boolean cacheEnabled;
+  private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final Counter requests;
+  private final Counter coalesced;
+  private final Counter cacheHits;
+
+  public UserSearchCoalescer(Cache<List<Object>, Object> searchResultCache,
+      @Value("${users.search.result-cache.enabled}") boolean cacheEnabled,
+      MeterRegistry meterRegistry) {
+    this.searchResultCache = searchResultCache;
+    this.cacheEnabled = cacheEnabled;
+    this.requests = meterRegistry.counter("users.search.requests");
+    this.coalesced = meterRegistry.counter("users.search.collapsed", "source", "in-flight");
+    this.cacheHits = meterRegistry.counter("users.search.collapsed", "source", "cache");
+    FunctionCounter.builder("users.search.executions", this,
+            coalescer -> coalescer.requests.count() - coalescer.coalesced.count()
+                - coalescer.cacheHits.count())
+        .register(meterRegistry);
+    Gauge.builder("users.search.collapse-ratio", this, UserSearchCoalescer::collapseRatio)
+        .register(meterRegistry);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T execute(List<Object> query, Supplier<T> search) {
+    requests.increment();
+    long startGeneration = generation.get();
+    List<Object> key = new ArrayList<>(query.size() + 1);
+    key.addAll(query);
+    key.add(startGeneration);
+
+    if (cacheEnabled) {
+      Object cached = searchResultCache.getIfPresent(key);
+      if (cached != null) {
+        cacheHits.increment();
+        return (T) cached;
+      }
+    }
+
+    CompletableFuture<Object> result = new CompletableFuture<>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(key, result);
+    if (running != null) {
+      coalesced.increment();
+      return (T) await(running);
+    }
+    try {
+      T value = search.get();
+      if (cacheEnabled && value != null && generation.get() == startGeneration) {
+        searchResultCache.put(key, value);
+      }
+      result.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      result.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, result);
+    }
+  }
+
+  /**
+   * Called after every user write. Searches already running finish for their current callers,
+   * but new callers start a fresh query and nothing older is served from the cache.
+   */
+  public void invalidate() {
+    generation.incrementAndGet();
+    if (cacheEnabled) {
+      searchResultCache.invalidateAll();
+    }
+  }
+
+  double collapseRatio() {
+    double total = requests.count();
+    return total == 0 ? 0 : (coalesced.count() + cacheHits.count()) / total;
+  }
+
+  private static Object await(CompletableFuture<Object> running) {
+    try {
+      return running.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
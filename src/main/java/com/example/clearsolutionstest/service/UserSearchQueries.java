@@ -0,0 +1,38 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserStore;
+import java.util.Date;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The read-only transactions behind coalesced searches. {@link UserService} calls them only from
+ * the caller that runs a search, so callers waiting for its result hold no transaction and no
+ * connection.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserSearchQueries {
+
+  private final UserStore store;
+
+  @Transactional(readOnly = true)
+  public Page<User> findPage(Date fromDate, Date toDate, Pageable pageable) {
+    return store.findByBirthDateBetween(fromDate, toDate, pageable);
+  }
+
+  @Transactional(readOnly = true)
+  public Slice<User> findSlice(Date fromDate, Date toDate, Pageable pageable) {
+    return store.findSliceByBirthDateBetween(fromDate, toDate, pageable);
+  }
+
+  @Transactional(readOnly = true)
+  public long estimateCount(Date fromDate, Date toDate) {
+    return store.estimateCountByBirthDateBetween(fromDate, toDate);
+  }
+}
@@ -1,29 +1,194 @@
 package com.example.clearsolutionstest.service;
 
 import com.example.clearsolutionstest.entity.User;
-import com.example.clearsolutionstest.repository.UserRepository;
+import com.example.clearsolutionstest.export.CsvUserExportWriter;
+import com.example.clearsolutionstest.export.NdjsonUserExportWriter;
+import com.example.clearsolutionstest.export.UserExportWriter;
+import com.example.clearsolutionstest.importer.UserCsvImporter;
+import com.example.clearsolutionstest.pagination.UserSearchCursor;
+import com.example.clearsolutionstest.repository.UserStore;
+import com.example.clearsolutionstest.request.DistributionBucketType;
+import com.example.clearsolutionstest.request.ExportFormat;
 import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.response.CacheStatistics;
+import com.example.clearsolutionstest.response.DistributionBucket;
+import com.example.clearsolutionstest.response.KeysetSlice;
+import com.example.clearsolutionstest.response.UserBatchItemResult;
+import com.example.clearsolutionstest.response.UserImportSummary;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import com.example.clearsolutionstest.util.BirthDates;
+import com.example.clearsolutionstest.validation.UserValidator;
+import com.example.clearsolutionstest.validation.UserViolation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.annotation.Timed;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "users.service", histogram = true)
 public class UserService {
 
-  private final UserRepository repository;
+  private static final Set<String> SELECTABLE_FIELDS = Set.of("id", "email", "firstname",
+      "lastname", "birthDate", "address", "phoneNumber");
+
+  private final UserStore store;
+  private final UserValidator validator;
+  private final ObjectMapper objectMapper;
+  private final Cache<Long, User> userCache;
+  private final UserSearchQueries searchQueries;
+  private final UserUpdateBuffer updateBuffer;
+  private final BirthDateHistogram birthDateHistogram;
+  private final UserLookupIndex lookupIndex;
+  private final UserChangeFeed changeFeed;
+  private final UserSearchCoalescer searchCoalescer;
+  private final UserCsvImporter csvImporter;
+
+  @Value("${users.batch.size}")
+  private int batchSize;
+
+  @Value("${users.lookup.max-results}")
+  private int maxLookupResults;
 
   public User create(User user) {
-    return repository.save(user);
+    User createdUser = store.insert(user);
+    searchCoalescer.invalidate();
+    if (createdUser != null) {
+      birthDateHistogram.recordCreated(createdUser.getBirthDate());
+      lookupIndex.index(createdUser);
+      changeFeed.publishCreated(createdUser);
+    }
+    return createdUser;
+  }
+
+  public List<UserBatchItemResult> createAll(List<User> users) {
+    UserBatchItemResult[] results = new UserBatchItemResult[users.size()];
+    Set<String> seenEmails = new HashSet<>();
+    List<Integer> pending = new ArrayList<>(batchSize);
+
+    for (int i = 0; i < users.size(); i++) {
+      User user = users.get(i);
+      user.setId(null);
+
+      List<UserViolation> violations = validator.check(user);
+      if (!violations.isEmpty()) {
+        List<String> codes = violations.stream().map(UserViolation::getCode)
+            .collect(Collectors.toList());
+        results[i] = UserBatchItemResult.invalid(i, user.getEmail(), codes);
+      } else if (!seenEmails.add(user.getEmail())) {
+        results[i] = UserBatchItemResult.duplicateEmail(i, user.getEmail());
+      } else {
+        pending.add(i);
+        if (pending.size() == batchSize) {
+          insertBatch(users, pending, results);
+          pending.clear();
+        }
+      }
+    }
+    if (!pending.isEmpty()) {
+      insertBatch(users, pending, results);
+    }
+    return Arrays.asList(results);
+  }
+
+  public UserImportSummary importUsers(InputStream in, OutputStream out) throws IOException {
+    return csvImporter.importCsv(in, out, this::insertImported);
+  }
+
+  private List<UserBatchItemResult> insertImported(List<User> users) {
+    UserBatchItemResult[] results = new UserBatchItemResult[users.size()];
+    insertBatch(users, IntStream.range(0, users.size()).boxed().collect(Collectors.toList()),
+        results);
+    return Arrays.asList(results);
+  }
+
+  private void insertBatch(List<User> users, List<Integer> indexes,
+      UserBatchItemResult[] results) {
+    List<String> emails = indexes.stream().map(i -> users.get(i).getEmail())
+        .collect(Collectors.toList());
+    Set<String> existingEmails = store.findExistingEmails(emails);
+
+    List<Integer> insertable = new ArrayList<>(indexes.size());
+    for (Integer i : indexes) {
+      if (existingEmails.contains(users.get(i).getEmail())) {
+        results[i] = UserBatchItemResult.duplicateEmail(i, users.get(i).getEmail());
+      } else {
+        insertable.add(i);
+      }
+    }
+    if (insertable.isEmpty()) {
+      return;
+    }
+
+    List<User> batch = insertable.stream().map(users::get).collect(Collectors.toList());
+    boolean[] created = store.insert(batch);
+    searchCoalescer.invalidate();
+    for (int j = 0; j < insertable.size(); j++) {
+      int i = insertable.get(j);
+      if (created[j]) {
+        recordCreated(i, users.get(i), results);
+      } else {
+        results[i] = UserBatchItemResult.duplicateEmail(i, users.get(i).getEmail());
+      }
+    }
+  }
+
+  private void recordCreated(int i, User user, UserBatchItemResult[] results) {
+    results[i] = UserBatchItemResult.created(i, user.getId(), user.getEmail());
+    birthDateHistogram.recordCreated(user.getBirthDate());
+    lookupIndex.index(user);
+    changeFeed.publishCreated(user);
+  }
+
+  public User getUser(Long userId) {
+    User user = userCache.get(userId, id -> findById(id).orElse(null));
+    if (user == null) {
+      throw new NoSuchElementException("No user found");
+    }
+    return updateBuffer.applyPending(user);
+  }
+
+  public CacheStatistics getCacheStatistics() {
+    return CacheStatistics.of(userCache.estimatedSize(), userCache.stats());
   }
 
   public User update(Long userId, User newUser) {
-    User existingUser = repository.findById(userId)
+    return update(userId, newUser, null);
+  }
+
+  public User update(Long userId, User newUser, Long expectedVersion) {
+    updateBuffer.flush(userId);
+    User existingUser = findById(userId)
         .orElseThrow(() -> new NoSuchElementException("No user found"));
+    checkVersion(existingUser, expectedVersion);
+    Date oldBirthDate = existingUser.getBirthDate();
+    String oldEmail = existingUser.getEmail();
 
     existingUser.setEmail(newUser.getEmail());
     existingUser.setFirstname(newUser.getFirstname());
@@ -32,44 +197,229 @@ public class UserService {
     existingUser.setAddress(newUser.getAddress());
     existingUser.setPhoneNumber(newUser.getPhoneNumber());
 
-    return repository.save(existingUser);
+    User savedUser = store.update(existingUser, oldEmail);
+    userCache.invalidate(userId);
+    searchCoalescer.invalidate();
+    birthDateHistogram.recordChanged(oldBirthDate, newUser.getBirthDate());
+    lookupIndex.index(existingUser);
+    changeFeed.publishUpdated(savedUser);
+    return savedUser;
   }
 
   public User updateUserNonRequiredData(Long userId, UserUpdateNonRequiredDataRequest request) {
-    Optional<User> optionalUser = repository.findById(userId);
+    return updateUserNonRequiredData(userId, request, null);
+  }
 
-    if (optionalUser.isPresent()) {
-      User user = optionalUser.get();
+  public User updateUserNonRequiredData(Long userId, UserUpdateNonRequiredDataRequest request,
+      Long expectedVersion) {
+    if (request.getAddress() == null && request.getPhoneNumber() == null) {
+      User user = getUser(userId);
+      checkVersion(user, expectedVersion);
+      return user;
+    }
+    if (expectedVersion == null && updateBuffer.isEnabled()) {
+      getUser(userId);
+      updateBuffer.enqueue(userId, request);
+      User updatedUser = getUser(userId);
+      changeFeed.publishUpdated(updatedUser);
+      return updatedUser;
+    }
 
-      if (request.getAddress() != null) {
-        user.setAddress(request.getAddress());
+    updateBuffer.flush(userId);
+    int updated = store.updateNonRequiredData(userId, request, expectedVersion);
+    userCache.invalidate(userId);
+    searchCoalescer.invalidate();
+    if (updated == 0) {
+      if (expectedVersion != null && store.existsById(userId)) {
+        throw new OptimisticLockingFailureException("User was modified concurrently");
       }
+      throw new NoSuchElementException("No user found");
+    }
+    User updatedUser = getUser(userId);
+    changeFeed.publishUpdated(updatedUser);
+    return updatedUser;
+  }
 
-      if (request.getPhoneNumber() != null) {
-        user.setPhoneNumber(request.getPhoneNumber());
-      }
+  private void checkVersion(User user, Long expectedVersion) {
+    if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+      throw new OptimisticLockingFailureException("User was modified concurrently");
+    }
+  }
 
-      return repository.save(user);
-    } else {
+  public void deleteUser(Long userId) {
+    updateBuffer.discard(userId);
+    Date birthDate = birthDateHistogram.isEnabled() ? findBirthDate(userId) : null;
+    int deleted = store.delete(userId);
+    userCache.invalidate(userId);
+    searchCoalescer.invalidate();
+    if (deleted == 0) {
       throw new NoSuchElementException("No user found");
     }
+    birthDateHistogram.recordDeleted(birthDate);
+    lookupIndex.remove(userId);
+    changeFeed.publishDeleted(userId);
   }
 
-  public void deleteUser(Long userId) {
-    Optional<User> optionalUser = repository.findById(userId);
+  public SseEmitter subscribeToChanges(Long lastEventId) {
+    return changeFeed.subscribe(lastEventId);
+  }
 
-    if (optionalUser.isPresent()) {
-      repository.deleteById(userId);
+  public List<UserLookupResult> lookupUsers(String query, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("'limit' must be positive.");
+    }
+    return lookupIndex.lookup(query, Math.min(limit, maxLookupResults));
+  }
+
+  private Date findBirthDate(Long userId) {
+    User cached = userCache.getIfPresent(userId);
+    if (cached != null) {
+      return cached.getBirthDate();
+    }
+    return findById(userId).map(User::getBirthDate).orElse(null);
+  }
+
+  private Optional<User> findById(Long userId) {
+    return store.findById(userId);
+  }
+
+  @Transactional(readOnly = true)
+  public List<DistributionBucket> getBirthDateDistribution(Date fromDate, Date toDate,
+      DistributionBucketType bucketType, int bandWidth) {
+    checkBirthDateRange(fromDate, toDate);
+    if (bandWidth <= 0) {
+      throw new IllegalArgumentException("'bandWidth' must be positive.");
+    }
+
+    LocalDate today = LocalDate.now();
+    Map<Integer, Long> buckets = new TreeMap<>();
+    if (birthDateHistogram.isLoaded()) {
+      birthDateHistogram.countsBetween(BirthDates.toLocalDate(fromDate),
+              BirthDates.toLocalDate(toDate))
+          .forEach((birthDate, count) -> buckets.merge(
+              bucketType.bucketOf(birthDate, today, bandWidth), count.sum(), Long::sum));
     } else {
-      throw new NoSuchElementException("No user found");
+      store.countByBirthDate(fromDate, toDate).forEach((birthDate, count) -> buckets.merge(
+          bucketType.bucketOf(birthDate, today, bandWidth), count, Long::sum));
     }
+
+    List<DistributionBucket> distribution = new ArrayList<>(buckets.size());
+    buckets.forEach((bucket, count) -> {
+      if (count > 0) {
+        distribution.add(new DistributionBucket(bucketType.label(bucket, bandWidth), count));
+      }
+    });
+    return distribution;
   }
 
+  /**
+   * Not transactional itself: callers that wait for a coalesced search must not hold a connection,
+   * so only the caller that runs the search opens a transaction, in {@link UserSearchQueries}.
+   */
   public Page<User> findUsersByBirthDateRange(Date fromDate, Date toDate, Pageable pageable) {
+    checkBirthDateRange(fromDate, toDate);
+    return searchCoalescer.execute(Arrays.asList("page", fromDate, toDate, pageable),
+        () -> searchQueries.findPage(fromDate, toDate, pageable));
+  }
+
+  public Slice<User> findUserSliceByBirthDateRange(Date fromDate, Date toDate,
+      Pageable pageable) {
+    checkBirthDateRange(fromDate, toDate);
+    return searchCoalescer.execute(Arrays.asList("slice", fromDate, toDate, pageable),
+        () -> searchQueries.findSlice(fromDate, toDate, pageable));
+  }
+
+  public Page<User> findUsersByBirthDateRangeWithApproximateTotal(Date fromDate, Date toDate,
+      Pageable pageable) {
+    Slice<User> slice = findUserSliceByBirthDateRange(fromDate, toDate, pageable);
+    long seen = pageable.getOffset() + slice.getNumberOfElements();
+    long total;
+    if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+      total = seen;
+    } else {
+      total = Math.max(searchQueries.estimateCount(fromDate, toDate), seen + 1);
+    }
+    return new PageImpl<>(slice.getContent(), pageable, total);
+  }
+
+  @Transactional(readOnly = true)
+  public Page<User> findUsersWithBirthdayWithin(int withinDays, Pageable pageable) {
+    return findUsersWithBirthdayWithin(LocalDate.now(), withinDays, pageable);
+  }
+
+  Page<User> findUsersWithBirthdayWithin(LocalDate today, int withinDays, Pageable pageable) {
+    List<BirthdayWindow> windows = BirthdayWindow.of(today, withinDays);
+    List<User> content = new ArrayList<>(pageable.getPageSize());
+    long offset = pageable.getOffset();
+    long total = 0;
+    for (BirthdayWindow window : windows) {
+      int from = window.getFromMonthDay();
+      int to = window.getToMonthDay();
+      long count = store.countByBirthMonthDayBetween(from, to);
+      total += count;
+      int remaining = pageable.getPageSize() - content.size();
+      if (remaining > 0 && offset < count) {
+        content.addAll(store.findByBirthMonthDayBetween(from, to, offset, remaining));
+      }
+      offset = Math.max(0, offset - count);
+    }
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  @Transactional(readOnly = true)
+  public Page<Map<String, Object>> findUserFieldsByBirthDateRange(Date fromDate, Date toDate,
+      List<String> fields, Pageable pageable) {
+    checkBirthDateRange(fromDate, toDate);
+    List<String> selectedFields = fields.stream().distinct().collect(Collectors.toList());
+    for (String field : selectedFields) {
+      if (!SELECTABLE_FIELDS.contains(field)) {
+        throw new IllegalArgumentException("Unknown field '" + field + "'.");
+      }
+    }
+    return store.findFieldsByBirthDateBetween(fromDate, toDate, selectedFields, pageable);
+  }
+
+  @Transactional(readOnly = true)
+  public KeysetSlice<User> findUsersByBirthDateRangeAfter(Date fromDate, Date toDate,
+      String after, int size) {
+    checkBirthDateRange(fromDate, toDate);
+    UserSearchCursor cursor = after == null || after.isEmpty()
+        ? null : UserSearchCursor.decode(after);
+    Slice<User> slice = store.findKeysetSliceByBirthDateBetween(fromDate, toDate,
+        cursor == null ? null : cursor.birthDateAsDate(), cursor == null ? null : cursor.getId(),
+        size);
+
+    List<User> content = slice.getContent();
+    String nextCursor = slice.hasNext()
+        ? UserSearchCursor.of(content.get(content.size() - 1)).encode() : null;
+    return new KeysetSlice<>(content, size, slice.hasNext(), nextCursor);
+  }
+
+  @Transactional(readOnly = true)
+  public void exportUsersByBirthDateRange(Date fromDate, Date toDate, ExportFormat format,
+      OutputStream out) throws IOException {
+    checkBirthDateRange(fromDate, toDate);
+    UserExportWriter writer = format == ExportFormat.CSV
+        ? new CsvUserExportWriter(out) : new NdjsonUserExportWriter(objectMapper, out);
+
+    try {
+      store.forEachByBirthDateBetween(fromDate, toDate, user -> {
+        try {
+          writer.write(user);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    writer.finish();
+  }
+
+  private void checkBirthDateRange(Date fromDate, Date toDate) {
     if (fromDate.after(toDate)) {
       throw new IllegalArgumentException("The 'From' date must be less than the 'To' date.");
     }
-    return repository.findUsersByBirthDateBetween(fromDate, toDate, pageable);
   }
 
 
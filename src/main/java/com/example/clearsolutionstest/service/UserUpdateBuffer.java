@@ -0,0 +1,272 @@
+package com.example.clearsolutionstest.service;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserStore;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer for PATCH updates. Requests for the same user are merged while they wait,
+ * and the buffer is written as one JDBC batch when it reaches the configured size, on a timer and
+ * on shutdown. Reads of a single user see pending changes through {@link #applyPending(User)}.
+ */
+@Slf4j
+@Component
+public class UserUpdateBuffer {
+
+  private final UserStore store;
+  private final Cache<Long, User> userCache;
+  private final UserSearchCoalescer searchCoalescer;
+  private final boolean enabled;
+  private final int maxPending;
+  private final Duration flushInterval;
+  private final Map<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+  private final Object flushLock = new Object();
+  private ScheduledExecutorService scheduler;
+
+  public UserUpdateBuffer(UserStore store, Cache<Long, User> userCache,
+      UserSearchCoalescer searchCoalescer,
+      @Value("${users.write-behind.enabled}") boolean enabled,
+      @Value("${users.write-behind.max-pending}") int maxPending,
+      @Value("${users.write-behind.flush-interval}") Duration flushInterval) {
+    this.store = store;
+    this.userCache = userCache;
+    this.searchCoalescer = searchCoalescer;
+    this.enabled = enabled;
+    this.maxPending = maxPending;
+    this.flushInterval = flushInterval;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (enabled) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+          new CustomizableThreadFactory("users-write-behind-"));
+      scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(),
+          flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler.awaitTermination(flushInterval.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+    }
+    flush();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void enqueue(Long userId, UserUpdateNonRequiredDataRequest request) {
+    pending.compute(userId, (id, update) -> (update == null ? PendingUpdate.NONE : update)
+        .withWaiting(copy(request)));
+    if (pending.size() >= maxPending && scheduler != null) {
+      scheduler.execute(this::flushQuietly);
+    }
+  }
+
+  /**
+   * Returns the user with its pending changes applied. Every PATCH counts towards the version, as
+   * it does when the batch is written, so each one gives the user a new ETag. Changes that were
+   * written already are skipped when the row was loaded after their commit.
+   */
+  public User applyPending(User user) {
+    PendingUpdate update = pending.get(user.getId());
+    if (update == null) {
+      return user;
+    }
+    User merged = copy(user);
+    boolean written = update.writtenVersion != null && merged.getVersion() != null
+        && merged.getVersion() >= update.writtenVersion;
+    if (!written) {
+      apply(merged, update.flushing);
+    }
+    apply(merged, update.waiting);
+    if (merged.getVersion() != null) {
+      merged.setVersion(merged.getVersion() + (written ? 0 : update.flushingChanges)
+          + update.waitingChanges);
+    }
+    return merged;
+  }
+
+  public void discard(Long userId) {
+    pending.computeIfPresent(userId, (id, update) -> update.withoutWaiting());
+  }
+
+  public void flush(Long userId) {
+    PendingUpdate update = pending.get(userId);
+    if (update == null || update.waiting == null) {
+      return;
+    }
+    synchronized (flushLock) {
+      write(List.of(userId));
+    }
+  }
+
+  public void flush() {
+    synchronized (flushLock) {
+      write(new ArrayList<>(pending.keySet()));
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.error("Failed to flush pending user updates, they will be retried", e);
+    }
+  }
+
+  /**
+   * Writes the waiting changes of the given users. Each entry moves its changes to the flushing
+   * side in place, so readers see them until the row is written and the cached user is dropped.
+   * Between the commit and the cleanup, the version each row was written with tells readers
+   * whether the row they loaded already holds the flushed changes.
+   */
+  private void write(List<Long> userIds) {
+    Map<Long, UserUpdateNonRequiredDataRequest> batch = new HashMap<>();
+    Map<Long, Integer> changes = new HashMap<>();
+    for (Long userId : userIds) {
+      PendingUpdate update = pending.computeIfPresent(userId, (id, entry) -> entry.startFlush());
+      if (update != null && update.flushing != null) {
+        batch.put(userId, update.flushing);
+        changes.put(userId, update.flushingChanges);
+      }
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    Map<Long, Long> versions;
+    try {
+      versions = store.batchUpdateNonRequiredData(batch, changes);
+    } catch (DataAccessException e) {
+      // Put the updates back underneath anything that arrived in the meantime.
+      batch.keySet().forEach(userId -> pending.computeIfPresent(userId,
+          (id, update) -> update.failFlush()));
+      throw e;
+    }
+    versions.forEach((userId, version) -> pending.computeIfPresent(userId,
+        (id, update) -> update.written(version)));
+    userCache.invalidateAll(batch.keySet());
+    batch.keySet().forEach(userId -> pending.computeIfPresent(userId,
+        (id, update) -> update.finishFlush()));
+    searchCoalescer.invalidate();
+  }
+
+  private static UserUpdateNonRequiredDataRequest merge(UserUpdateNonRequiredDataRequest older,
+      UserUpdateNonRequiredDataRequest newer) {
+    UserUpdateNonRequiredDataRequest merged = copy(older);
+    if (newer.getAddress() != null) {
+      merged.setAddress(newer.getAddress());
+    }
+    if (newer.getPhoneNumber() != null) {
+      merged.setPhoneNumber(newer.getPhoneNumber());
+    }
+    return merged;
+  }
+
+  private static UserUpdateNonRequiredDataRequest copy(UserUpdateNonRequiredDataRequest request) {
+    UserUpdateNonRequiredDataRequest copy = new UserUpdateNonRequiredDataRequest();
+    copy.setAddress(request.getAddress());
+    copy.setPhoneNumber(request.getPhoneNumber());
+    return copy;
+  }
+
+  private static void apply(User user, UserUpdateNonRequiredDataRequest request) {
+    if (request == null) {
+      return;
+    }
+    if (request.getAddress() != null) {
+      user.setAddress(request.getAddress());
+    }
+    if (request.getPhoneNumber() != null) {
+      user.setPhoneNumber(request.getPhoneNumber());
+    }
+  }
+
+  private static User copy(User user) {
+    User copy = new User();
+    copy.setId(user.getId());
+    copy.setEmail(user.getEmail());
+    copy.setFirstname(user.getFirstname());
+    copy.setLastname(user.getLastname());
+    copy.setBirthDate(user.getBirthDate());
+    copy.setBirthMonthDay(user.getBirthMonthDay());
+    copy.setAddress(user.getAddress());
+    copy.setPhoneNumber(user.getPhoneNumber());
+    copy.setVersion(user.getVersion());
+    return copy;
+  }
+
+  /**
+   * The changes of one user that are being written and those that arrived since, with the number
+   * of PATCH requests merged into each, and once the write commits, the version it left the row
+   * at. Entries are replaced, never changed.
+   */
+  private static final class PendingUpdate {
+
+    static final PendingUpdate NONE = new PendingUpdate(null, 0, null, null, 0);
+
+    final UserUpdateNonRequiredDataRequest flushing;
+    final int flushingChanges;
+    final Long writtenVersion;
+    final UserUpdateNonRequiredDataRequest waiting;
+    final int waitingChanges;
+
+    PendingUpdate(UserUpdateNonRequiredDataRequest flushing, int flushingChanges,
+        Long writtenVersion, UserUpdateNonRequiredDataRequest waiting, int waitingChanges) {
+      this.flushing = flushing;
+      this.flushingChanges = flushingChanges;
+      this.writtenVersion = writtenVersion;
+      this.waiting = waiting;
+      this.waitingChanges = waitingChanges;
+    }
+
+    PendingUpdate withWaiting(UserUpdateNonRequiredDataRequest request) {
+      return new PendingUpdate(flushing, flushingChanges, writtenVersion,
+          waiting == null ? request : merge(waiting, request), waitingChanges + 1);
+    }
+
+    PendingUpdate withoutWaiting() {
+      return flushing == null
+          ? null : new PendingUpdate(flushing, flushingChanges, writtenVersion, null, 0);
+    }
+
+    PendingUpdate startFlush() {
+      return waiting == null || flushing != null
+          ? this : new PendingUpdate(waiting, waitingChanges, null, null, 0);
+    }
+
+    PendingUpdate written(long version) {
+      return new PendingUpdate(flushing, flushingChanges, version, waiting, waitingChanges);
+    }
+
+    PendingUpdate finishFlush() {
+      return waiting == null ? null : new PendingUpdate(null, 0, null, waiting, waitingChanges);
+    }
+
+    PendingUpdate failFlush() {
+      return new PendingUpdate(null, 0, null,
+          waiting == null ? flushing : merge(flushing, waiting), flushingChanges + waitingChanges);
+    }
+  }
+}
@@ -0,0 +1,787 @@
+package com.example.clearsolutionstest.sharding;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserStore;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import com.example.clearsolutionstest.util.BirthDates;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Optional storage that spreads users over several databases. A user is placed on the shard its
+ * email hashes to when it is created and stays there. Its id is a shard-local sequence value
+ * times the shard count plus the shard index, so ids never collide and every id names its shard;
+ * the shard count therefore cannot change once users are stored. Each shard also holds the claims
+ * for the emails that hash to it, which keeps emails unique across shards when a user changes
+ * theirs. Searches query every shard in parallel and merge the sorted results.
+ *
+ * <p>Claims, row writes and releases that land on the user's own shard commit in one transaction.
+ * A claim on another shard commits before the row write, which holds the user's row lock from
+ * before the claim until it commits, and a release on another shard runs after the row write
+ * commits. If the process dies in between, or a release fails, the claim outlives the email it
+ * guarded; the next claim of that email finds the claiming user no longer holds it and takes the
+ * claim over.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "users.sharding.enabled", havingValue = "true")
+public class ShardedUserStore implements UserStore {
+
+  private static final int ID_BLOCK_SIZE = 50;
+  private static final int KEYSET_BATCH_SIZE = 1000;
+  private static final String COLUMNS = "id, email, first_name, last_name, birth_date, "
+      + "birth_month_day, address, phone_number, version";
+  private static final Map<String, String> SORTABLE_COLUMNS = Map.of("id", "id", "email", "email",
+      "firstname", "first_name", "lastname", "last_name", "birthDate", "birth_date",
+      "address", "address", "phoneNumber", "phone_number");
+  private static final RowMapper<User> USER_ROW = (row, rowNum) -> toUser(row);
+
+  private final List<Shard> shards = new ArrayList<>();
+  private final MeterRegistry meterRegistry;
+  private final int threads;
+  private final Duration queryTimeout;
+  private ExecutorService executor;
+
+  public ShardedUserStore(MeterRegistry meterRegistry,
+      @Value("${users.sharding.urls}") List<String> urls,
+      @Value("${spring.datasource.username}") String username,
+      @Value("${spring.datasource.password}") String password,
+      @Value("${users.sharding.threads}") int threads,
+      @Value("${users.sharding.query-timeout}") Duration queryTimeout) {
+    this.meterRegistry = meterRegistry;
+    this.threads = threads;
+    this.queryTimeout = queryTimeout;
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("'users.sharding.urls' must not be empty.");
+    }
+    for (String url : urls) {
+      HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+          .url(url).username(username).password(password).build();
+      pool.setPoolName("shard-" + shards.size());
+      pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+      shards.add(new Shard(shards.size(), pool));
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    shards.forEach(Shard::createSchema);
+    executor = Executors.newFixedThreadPool(threads,
+        new CustomizableThreadFactory("users-shard-"));
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    shards.forEach(shard -> shard.pool.close());
+  }
+
+  int shardCount() {
+    return shards.size();
+  }
+
+  int shardOf(Long userId) {
+    return Math.floorMod(userId, shards.size());
+  }
+
+  @Override
+  public User insert(User user) {
+    if (!insert(List.of(user))[0]) {
+      throw new DataIntegrityViolationException("Email '" + user.getEmail() + "' is taken.");
+    }
+    return user;
+  }
+
+  @Override
+  public boolean[] insert(List<User> users) {
+    boolean[] created = new boolean[users.size()];
+    Map<Shard, List<Integer>> byShard = new LinkedHashMap<>();
+    for (int i = 0; i < users.size(); i++) {
+      byShard.computeIfAbsent(shardFor(users.get(i).getEmail()), shard -> new ArrayList<>())
+          .add(i);
+    }
+    byShard.forEach((shard, indexes) -> {
+      List<User> batch = indexes.stream().map(users::get).collect(Collectors.toList());
+      try {
+        shard.insert(batch);
+        indexes.forEach(i -> created[i] = true);
+      } catch (DataIntegrityViolationException e) {
+        // One of the emails is taken; find it by inserting row by row.
+        for (Integer i : indexes) {
+          created[i] = insert(shard, users.get(i));
+        }
+      }
+    });
+    return created;
+  }
+
+  private boolean insert(Shard shard, User user) {
+    try {
+      shard.insert(List.of(user));
+      return true;
+    } catch (DataIntegrityViolationException duplicate) {
+      if (releaseStaleClaim(shard, user.getEmail())) {
+        try {
+          shard.insert(List.of(user));
+          return true;
+        } catch (DataIntegrityViolationException stillDuplicate) {
+          // Claimed again in the meantime.
+        }
+      }
+      user.setId(null);
+      return false;
+    }
+  }
+
+  @Override
+  public Optional<User> findById(Long userId) {
+    return shards.get(shardOf(userId)).jdbc.query(
+        "select " + COLUMNS + " from users where id = ?", USER_ROW, userId).stream().findFirst();
+  }
+
+  @Override
+  public boolean existsById(Long userId) {
+    return findById(userId).isPresent();
+  }
+
+  @Override
+  public Set<String> findExistingEmails(Collection<String> emails) {
+    Map<Shard, List<String>> byShard = emails.stream()
+        .collect(Collectors.groupingBy(this::shardFor));
+    Set<String> existing = new HashSet<>();
+    byShard.forEach((shard, shardEmails) -> existing.addAll(shard.jdbc.queryForList(
+        "select email from user_emails where email in (" + placeholders(shardEmails.size())
+            + ")", String.class, shardEmails.toArray())));
+    return existing;
+  }
+
+  /**
+   * Writes the user's fields if its version is still the stored one. A changed email is claimed
+   * before the row is written and the previous one released after.
+   */
+  @Override
+  public User update(User user, String previousEmail) {
+    Shard shard = shards.get(shardOf(user.getId()));
+    if (user.getEmail().equals(previousEmail)) {
+      write(shard, user);
+      user.setVersion(user.getVersion() + 1);
+      return user;
+    }
+
+    Shard claimShard = shardFor(user.getEmail());
+    Shard releaseShard = shardFor(previousEmail);
+    try {
+      shard.tx.executeWithoutResult(status -> {
+        // Lock the row first, so that a claim committed on another shard is never seen without
+        // its row write by a concurrent stale-claim check.
+        if (shard.jdbc.queryForList("select id from users where id = ? and version = ? for update",
+            Long.class, user.getId(), user.getVersion()).isEmpty()) {
+          throw new OptimisticLockingFailureException("User was modified concurrently");
+        }
+        claim(claimShard, user.getEmail(), user.getId());
+        write(shard, user);
+        if (releaseShard == shard) {
+          shard.release(previousEmail, user.getId());
+        }
+      });
+    } catch (RuntimeException e) {
+      if (claimShard != shard) {
+        releaseAfterCommit(claimShard, user.getEmail(), user.getId());
+      }
+      throw e;
+    }
+    if (releaseShard != shard) {
+      releaseAfterCommit(releaseShard, previousEmail, user.getId());
+    }
+    user.setVersion(user.getVersion() + 1);
+    return user;
+  }
+
+  private void write(Shard shard, User user) {
+    int updated = shard.jdbc.update("update users set email = ?, first_name = ?, last_name = ?, "
+            + "birth_date = ?, birth_month_day = ?, address = ?, phone_number = ?, "
+            + "version = version + 1 where id = ? and version = ?",
+        user.getEmail(), user.getFirstname(), user.getLastname(), toSqlDate(user),
+        birthMonthDay(user), user.getAddress(), user.getPhoneNumber(), user.getId(),
+        user.getVersion());
+    if (updated == 0) {
+      throw new OptimisticLockingFailureException("User was modified concurrently");
+    }
+  }
+
+  @Override
+  public int updateNonRequiredData(Long userId, UserUpdateNonRequiredDataRequest request,
+      Long expectedVersion) {
+    String update = "update users set address = coalesce(?, address), "
+        + "phone_number = coalesce(?, phone_number), version = version + 1 where id = ?";
+    JdbcTemplate jdbc = shards.get(shardOf(userId)).jdbc;
+    return expectedVersion == null
+        ? jdbc.update(update, request.getAddress(), request.getPhoneNumber(), userId)
+        : jdbc.update(update + " and version = ?", request.getAddress(), request.getPhoneNumber(),
+            userId, expectedVersion);
+  }
+
+  @Override
+  public Map<Long, Long> batchUpdateNonRequiredData(
+      Map<Long, UserUpdateNonRequiredDataRequest> updates, Map<Long, Integer> changes) {
+    Map<Shard, List<Long>> byShard = updates.keySet().stream()
+        .collect(Collectors.groupingBy(userId -> shards.get(shardOf(userId))));
+    Map<Long, Long> versions = new LinkedHashMap<>();
+    byShard.forEach((shard, userIds) -> shard.tx.executeWithoutResult(status -> {
+      shard.jdbc.batchUpdate("update users set address = coalesce(?, address), "
+              + "phone_number = coalesce(?, phone_number), version = version + ? where id = ?",
+          userIds.stream().map(userId -> new Object[] {updates.get(userId).getAddress(),
+                  updates.get(userId).getPhoneNumber(), changes.getOrDefault(userId, 1), userId})
+              .collect(Collectors.toList()));
+      shard.jdbc.query("select id, version from users where id in ("
+              + placeholders(userIds.size()) + ")",
+          (RowCallbackHandler) row -> versions.put(row.getLong("id"), row.getLong("version")),
+          userIds.toArray());
+    }));
+    return versions;
+  }
+
+  @Override
+  public int delete(Long userId) {
+    Shard shard = shards.get(shardOf(userId));
+    String email = shard.tx.execute(status -> {
+      List<String> emails = shard.jdbc.queryForList(
+          "select email from users where id = ? for update", String.class, userId);
+      if (emails.isEmpty()) {
+        return null;
+      }
+      shard.jdbc.update("delete from users where id = ?", userId);
+      if (shardFor(emails.get(0)) == shard) {
+        shard.release(emails.get(0), userId);
+      }
+      return emails.get(0);
+    });
+    if (email == null) {
+      return 0;
+    }
+    if (shardFor(email) != shard) {
+      releaseAfterCommit(shardFor(email), email, userId);
+    }
+    return 1;
+  }
+
+  private void claim(Shard shard, String email, Long userId) {
+    try {
+      shard.claim(email, userId);
+    } catch (DataIntegrityViolationException e) {
+      if (!releaseStaleClaim(shard, email)) {
+        throw e;
+      }
+      shard.claim(email, userId);
+    }
+  }
+
+  /**
+   * Drops the claim on {@code email} if the user holding it no longer has that email. The check
+   * locks the holder's row, so it waits for a write that is still claiming the email to finish.
+   */
+  private boolean releaseStaleClaim(Shard claimShard, String email) {
+    List<Long> holders = claimShard.jdbc.queryForList(
+        "select user_id from user_emails where email = ?", Long.class, email);
+    if (holders.isEmpty()) {
+      return true;
+    }
+    Long holder = holders.get(0);
+    Shard holderShard = shards.get(shardOf(holder));
+    return Boolean.TRUE.equals(holderShard.tx.execute(status -> {
+      List<String> emails = holderShard.jdbc.queryForList(
+          "select email from users where id = ? for update", String.class, holder);
+      if (!emails.isEmpty() && emails.get(0).equals(email)) {
+        return false;
+      }
+      claimShard.release(email, holder);
+      return true;
+    }));
+  }
+
+  /** A claim left behind by a failed release is taken over by the next claim of its email. */
+  private void releaseAfterCommit(Shard shard, String email, Long userId) {
+    try {
+      shard.release(email, userId);
+    } catch (DataAccessException e) {
+      log.warn("Could not release the claim on a user email on shard {}; it is reclaimed on the "
+          + "next claim of that email", shard.index, e);
+    }
+  }
+
+  /**
+   * Returns one page of the users born in the range. Every shard returns its first
+   * {@code offset + size} rows in the page's order, so deep pages cost more on every shard; the
+   * keyset search does not have that cost.
+   */
+  @Override
+  public Page<User> findByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable) {
+    List<Sort.Order> orders = orders(pageable.getSort());
+    String where = " from users where birth_date between ? and ?";
+    String query = "select " + COLUMNS + where + orderBy(orders) + limit(pageable, 0);
+    Object[] range = {toSqlDate(fromDate), toSqlDate(toDate)};
+    List<ShardRows> results = scatter("page", shard -> new ShardRows(
+        shard.jdbc.query(query, USER_ROW, range),
+        shard.jdbc.queryForObject("select count(*)" + where, Long.class, range)));
+
+    List<User> content = merge(results.stream().map(ShardRows::getUsers)
+            .collect(Collectors.toList()), comparator(orders), offset(pageable),
+        pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE);
+    long total = results.stream().mapToLong(ShardRows::getTotal).sum();
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  @Override
+  public Slice<User> findSliceByBirthDateBetween(Date fromDate, Date toDate, Pageable pageable) {
+    List<Sort.Order> orders = orders(pageable.getSort());
+    String query = "select " + COLUMNS + " from users where birth_date between ? and ?"
+        + orderBy(orders) + limit(pageable, 1);
+    Object[] range = {toSqlDate(fromDate), toSqlDate(toDate)};
+    List<List<User>> results = scatter("slice", shard -> shard.jdbc.query(query, USER_ROW, range));
+
+    int size = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE - 1;
+    List<User> content = merge(results, comparator(orders), offset(pageable), size + 1);
+    boolean hasNext = content.size() > size;
+    return new SliceImpl<>(hasNext ? content.subList(0, size) : content, pageable, hasNext);
+  }
+
+  /** Counts exactly, since every shard counts its part of the range with one index scan. */
+  @Override
+  public long estimateCountByBirthDateBetween(Date fromDate, Date toDate) {
+    return scatter("count", shard -> shard.jdbc.queryForObject(
+            "select count(*) from users where birth_date between ? and ?", Long.class,
+            toSqlDate(fromDate), toSqlDate(toDate)))
+        .stream().mapToLong(Long::longValue).sum();
+  }
+
+  @Override
+  public Slice<User> findKeysetSliceByBirthDateBetween(Date fromDate, Date toDate,
+      Date afterBirthDate, Long afterId, int size) {
+    List<User> rows = findByBirthDateBetweenAfter(fromDate, toDate, afterBirthDate, afterId,
+        size + 1);
+    boolean hasNext = rows.size() > size;
+    return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.of(0, size),
+        hasNext);
+  }
+
+  /**
+   * Walks the shards in keyset order, one batch at a time, instead of holding one cursor open on
+   * every shard for the whole walk.
+   */
+  @Override
+  public void forEachByBirthDateBetween(Date fromDate, Date toDate, Consumer<User> action) {
+    List<User> users = findByBirthDateBetweenAfter(fromDate, toDate, null, null,
+        KEYSET_BATCH_SIZE);
+    while (!users.isEmpty()) {
+      users.forEach(action);
+      User last = users.get(users.size() - 1);
+      users = users.size() < KEYSET_BATCH_SIZE ? List.of() : findByBirthDateBetweenAfter(
+          fromDate, toDate, last.getBirthDate(), last.getId(), KEYSET_BATCH_SIZE);
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} users born in the range, ordered by birth date and id, that come
+   * after the given position, or from the start when {@code afterBirthDate} is null.
+   */
+  List<User> findByBirthDateBetweenAfter(Date fromDate, Date toDate, Date afterBirthDate,
+      Long afterId, int limit) {
+    String query = "select " + COLUMNS + " from users where birth_date between ? and ? "
+        + (afterBirthDate == null ? "" : "and (birth_date > ? or (birth_date = ? and id > ?)) ")
+        + "order by birth_date, id limit ?";
+    Object[] arguments = afterBirthDate == null
+        ? new Object[] {toSqlDate(fromDate), toSqlDate(toDate), limit}
+        : new Object[] {toSqlDate(fromDate), toSqlDate(toDate), toSqlDate(afterBirthDate),
+            toSqlDate(afterBirthDate), afterId, limit};
+    List<List<User>> results = scatter("keyset",
+        shard -> shard.jdbc.query(query, USER_ROW, arguments));
+    return merge(results, Comparator.comparing(User::getBirthDate).thenComparing(User::getId), 0,
+        limit);
+  }
+
+  /** Selects the given fields of one page of the users born in the range. */
+  @Override
+  public Page<Map<String, Object>> findFieldsByBirthDateBetween(Date fromDate, Date toDate,
+      List<String> fields, Pageable pageable) {
+    return findByBirthDateBetween(fromDate, toDate, pageable).map(user -> {
+      Map<String, Object> values = new LinkedHashMap<>(fields.size() * 2);
+      for (String field : fields) {
+        values.put(field, property(user, field));
+      }
+      return values;
+    });
+  }
+
+  @Override
+  public long countByBirthMonthDayBetween(int fromMonthDay, int toMonthDay) {
+    return scatter("birthday-count", shard -> shard.jdbc.queryForObject(
+        "select count(*) from users where birth_month_day between ? and ?", Long.class,
+        fromMonthDay, toMonthDay)).stream().mapToLong(Long::longValue).sum();
+  }
+
+  @Override
+  public List<User> findByBirthMonthDayBetween(int fromMonthDay, int toMonthDay, long offset,
+      int limit) {
+    List<List<User>> results = scatter("birthday", shard -> shard.jdbc.query("select " + COLUMNS
+            + " from users where birth_month_day between ? and ? "
+            + "order by birth_month_day, id limit ?", USER_ROW, fromMonthDay, toMonthDay,
+        offset + limit));
+    return merge(results,
+        Comparator.comparing(User::getBirthMonthDay).thenComparing(User::getId), offset, limit);
+  }
+
+  @Override
+  public Map<LocalDate, Long> countByBirthDate() {
+    return countByBirthDate("", new Object[0]);
+  }
+
+  @Override
+  public Map<LocalDate, Long> countByBirthDate(Date fromDate, Date toDate) {
+    return countByBirthDate(" where birth_date between ? and ?",
+        new Object[] {toSqlDate(fromDate), toSqlDate(toDate)});
+  }
+
+  private Map<LocalDate, Long> countByBirthDate(String where, Object[] arguments) {
+    List<Map<LocalDate, Long>> results = scatter("count", shard -> {
+      Map<LocalDate, Long> counts = new TreeMap<>();
+      shard.jdbc.query("select birth_date, count(*) from users" + where + " group by birth_date",
+          row -> {
+            counts.put(row.getDate(1).toLocalDate(), row.getLong(2));
+          }, arguments);
+      return counts;
+    });
+    Map<LocalDate, Long> counts = new TreeMap<>();
+    results.forEach(shardCounts -> shardCounts.forEach(
+        (birthDate, count) -> counts.merge(birthDate, count, Long::sum)));
+    return counts;
+  }
+
+  /** Streams the lookup fields of every user, one shard after another. */
+  @Override
+  public void forEachLookupResult(Consumer<UserLookupResult> action) {
+    for (Shard shard : shards) {
+      shard.jdbc.query("select id, email, first_name, last_name from users",
+          row -> {
+            action.accept(toLookupResult(row));
+          });
+    }
+  }
+
+  @Override
+  public List<UserLookupResult> lookupByPattern(String pattern, int limit) {
+    List<List<UserLookupResult>> results = scatter("lookup", shard -> shard.jdbc.query(
+        "select id, email, first_name, last_name from users where lower(email) like ? "
+            + "escape '\\' or lower(first_name) like ? escape '\\' "
+            + "or lower(last_name) like ? escape '\\' order by email limit ?",
+        (row, rowNum) -> toLookupResult(row), pattern, pattern, pattern, limit));
+    return merge(results, Comparator.comparing(UserLookupResult::getEmail), 0, limit);
+  }
+
+  /** Merges runs that are each sorted by {@code order}, skipping {@code skip} elements. */
+  static <T> List<T> merge(List<List<T>> runs, Comparator<? super T> order, long skip,
+      int limit) {
+    PriorityQueue<Run<T>> heads = new PriorityQueue<>(
+        Math.max(1, runs.size()), (left, right) -> order.compare(left.head(), right.head()));
+    for (List<T> run : runs) {
+      if (!run.isEmpty()) {
+        heads.add(new Run<>(run));
+      }
+    }
+    List<T> merged = new ArrayList<>();
+    long skipped = 0;
+    while (!heads.isEmpty() && merged.size() < limit) {
+      Run<T> run = heads.poll();
+      if (skipped < skip) {
+        skipped++;
+      } else {
+        merged.add(run.head());
+      }
+      if (run.advance()) {
+        heads.add(run);
+      }
+    }
+    return merged;
+  }
+
+  private <T> List<T> scatter(String operation, Function<Shard, T> query) {
+    long started = System.nanoTime();
+    List<Future<T>> futures = shards.stream()
+        .map(shard -> executor.submit(() -> query.apply(shard)))
+        .collect(Collectors.toList());
+    long deadline = started + queryTimeout.toNanos();
+    List<T> results = new ArrayList<>(shards.size());
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+      }
+      return results;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (TimeoutException e) {
+      throw new QueryTimeoutException("A shard did not answer within " + queryTimeout + ".");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DataAccessResourceFailureException("Interrupted while querying shards.", e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+      Timer.builder("users.sharding.scatter").tag("operation", operation)
+          .register(meterRegistry).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private Shard shardFor(String email) {
+    return shards.get(Math.floorMod(email.hashCode(), shards.size()));
+  }
+
+  /** The requested order with id appended, so rows from different shards never tie. */
+  private static List<Sort.Order> orders(Sort sort) {
+    List<Sort.Order> orders = new ArrayList<>();
+    (sort.isSorted() ? sort : Sort.by("birthDate")).forEach(orders::add);
+    for (Sort.Order order : orders) {
+      if (!SORTABLE_COLUMNS.containsKey(order.getProperty())) {
+        throw new IllegalArgumentException("Cannot sort by '" + order.getProperty() + "'.");
+      }
+    }
+    if (orders.stream().noneMatch(order -> order.getProperty().equals("id"))) {
+      orders.add(Sort.Order.asc("id"));
+    }
+    return orders;
+  }
+
+  /** Nulls sort low, both here and in {@link #comparator(List)}. */
+  private static String orderBy(List<Sort.Order> orders) {
+    return orders.stream()
+        .map(order -> SORTABLE_COLUMNS.get(order.getProperty())
+            + (order.isAscending() ? " asc nulls first" : " desc nulls last"))
+        .collect(Collectors.joining(", ", " order by ", ""));
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Comparator<User> comparator(List<Sort.Order> orders) {
+    Comparator<User> comparator = null;
+    for (Sort.Order order : orders) {
+      Comparator<User> next = Comparator.comparing(
+          user -> (Comparable) property(user, order.getProperty()),
+          Comparator.nullsFirst(Comparator.naturalOrder()));
+      next = order.isAscending() ? next : next.reversed();
+      comparator = comparator == null ? next : comparator.thenComparing(next);
+    }
+    return comparator;
+  }
+
+  private static Object property(User user, String property) {
+    switch (property) {
+      case "id":
+        return user.getId();
+      case "email":
+        return user.getEmail();
+      case "firstname":
+        return user.getFirstname();
+      case "lastname":
+        return user.getLastname();
+      case "birthDate":
+        return user.getBirthDate();
+      case "address":
+        return user.getAddress();
+      default:
+        return user.getPhoneNumber();
+    }
+  }
+
+  private static String limit(Pageable pageable, int extra) {
+    return pageable.isPaged()
+        ? " limit " + (pageable.getOffset() + pageable.getPageSize() + extra) : "";
+  }
+
+  private static long offset(Pageable pageable) {
+    return pageable.isPaged() ? pageable.getOffset() : 0;
+  }
+
+  private static String placeholders(int count) {
+    return String.join(", ", Collections.nCopies(count, "?"));
+  }
+
+  private static User toUser(ResultSet row) throws SQLException {
+    User user = new User();
+    user.setId(row.getLong("id"));
+    user.setEmail(row.getString("email"));
+    user.setFirstname(row.getString("first_name"));
+    user.setLastname(row.getString("last_name"));
+    user.setBirthDate(row.getDate("birth_date"));
+    user.setBirthMonthDay(row.getObject("birth_month_day", Integer.class));
+    user.setAddress(row.getString("address"));
+    user.setPhoneNumber(row.getString("phone_number"));
+    user.setVersion(row.getLong("version"));
+    return user;
+  }
+
+  private static UserLookupResult toLookupResult(ResultSet row) throws SQLException {
+    return new UserLookupResult(row.getLong("id"), row.getString("email"),
+        row.getString("first_name"), row.getString("last_name"));
+  }
+
+  private static java.sql.Date toSqlDate(User user) {
+    return user.getBirthDate() == null ? null : toSqlDate(user.getBirthDate());
+  }
+
+  private static java.sql.Date toSqlDate(Date date) {
+    return java.sql.Date.valueOf(BirthDates.toLocalDate(date));
+  }
+
+  private static Integer birthMonthDay(User user) {
+    return user.getBirthDate() == null ? null
+        : User.toBirthMonthDay(BirthDates.toLocalDate(user.getBirthDate()));
+  }
+
+  private static class Run<T> {
+
+    private final List<T> rows;
+    private int position;
+
+    Run(List<T> rows) {
+      this.rows = rows;
+    }
+
+    T head() {
+      return rows.get(position);
+    }
+
+    boolean advance() {
+      return ++position < rows.size();
+    }
+  }
+
+  @lombok.Value
+  private static class ShardRows {
+
+    List<User> users;
+    long total;
+  }
+
+  private class Shard {
+
+    private final int index;
+    private final HikariDataSource pool;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private long nextId = 1;
+    private long lastId;
+
+    Shard(int index, HikariDataSource pool) {
+      this.index = index;
+      this.pool = pool;
+      this.jdbc = new JdbcTemplate(pool);
+      this.tx = new TransactionTemplate(new DataSourceTransactionManager(pool));
+    }
+
+    void createSchema() {
+      jdbc.execute("create table if not exists users (id bigint primary key, "
+          + "email varchar(255) not null, first_name varchar(255) not null, "
+          + "last_name varchar(255) not null, birth_date date not null, birth_month_day int, "
+          + "address varchar(255), phone_number varchar(255), version bigint not null)");
+      jdbc.execute("create index if not exists idx_users_birth_date_id on users (birth_date, id)");
+      jdbc.execute("create table if not exists user_emails (email varchar(255) primary key, "
+          + "user_id bigint not null)");
+      jdbc.execute("create sequence if not exists users_seq start with " + ID_BLOCK_SIZE
+          + " increment by " + ID_BLOCK_SIZE);
+    }
+
+    /**
+     * Hands out shard-local ids from blocks reserved with one sequence call, like Hibernate's
+     * pooled optimizer, and spreads them so that {@code id % shards == index}.
+     */
+    synchronized long nextId() {
+      if (nextId > lastId) {
+        lastId = jdbc.queryForObject("select next value for users_seq", Long.class);
+        nextId = lastId - ID_BLOCK_SIZE + 1;
+      }
+      return nextId++ * shards.size() + index;
+    }
+
+    void insert(List<User> users) {
+      for (User user : users) {
+        user.setId(nextId());
+        user.setVersion(0L);
+        user.setBirthMonthDay(birthMonthDay(user));
+      }
+      tx.executeWithoutResult(status -> {
+        jdbc.batchUpdate("insert into user_emails (email, user_id) values (?, ?)",
+            users.stream().map(user -> new Object[] {user.getEmail(), user.getId()})
+                .collect(Collectors.toList()));
+        jdbc.batchUpdate("insert into users (" + COLUMNS + ") values (" + placeholders(9) + ")",
+            users.stream().map(user -> new Object[] {user.getId(), user.getEmail(),
+                    user.getFirstname(), user.getLastname(), toSqlDate(user),
+                    user.getBirthMonthDay(), user.getAddress(), user.getPhoneNumber(),
+                    user.getVersion()})
+                .collect(Collectors.toList()));
+      });
+    }
+
+    void claim(String email, Long userId) {
+      jdbc.update("insert into user_emails (email, user_id) values (?, ?)", email, userId);
+    }
+
+    void release(String email, Long userId) {
+      jdbc.update("delete from user_emails where email = ? and user_id = ?", email, userId);
+    }
+  }
+}
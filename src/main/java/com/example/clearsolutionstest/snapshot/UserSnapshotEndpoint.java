@@ -0,0 +1,25 @@
+package com.example.clearsolutionstest.snapshot;
+
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admin operation that writes the users table to the configured snapshot file. It is not exposed
+ * over HTTP by default; add {@code usersnapshot} to
+ * {@code management.endpoints.web.exposure.include} where the actuator port is protected.
+ */
+@Component
+@Endpoint(id = "usersnapshot")
+@RequiredArgsConstructor
+public class UserSnapshotEndpoint {
+
+  private final UserSnapshotService snapshotService;
+
+  @WriteOperation
+  public UserSnapshotResult export() throws IOException {
+    return snapshotService.export();
+  }
+}
@@ -0,0 +1,30 @@
+package com.example.clearsolutionstest.snapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of a users snapshot file. A 32-byte header holds the magic, format version, record count
+ * and a CRC32 of everything after the header. Each record is a length prefix, the fixed fields
+ * (id, version, birth date as epoch day) and then five strings, each stored as a signed short
+ * length (-1 for null) followed by UTF-8 bytes. All numbers are big-endian.
+ */
+final class UserSnapshotFormat {
+
+  static final long MAGIC = 0x55534552534e4150L;
+  static final int FORMAT_VERSION = 1;
+  static final int HEADER_SIZE = 32;
+  static final int NULL_LENGTH = -1;
+  static final int NULL_EPOCH_DAY = Integer.MIN_VALUE;
+  static final long NULL_VERSION = -1;
+  static final int FIXED_RECORD_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+  static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+  private UserSnapshotFormat() {
+  }
+
+  static ByteBuffer header(long records, long checksum) {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putLong(MAGIC).putInt(FORMAT_VERSION).putInt(0).putLong(records).putLong(checksum);
+    return header.flip();
+  }
+}
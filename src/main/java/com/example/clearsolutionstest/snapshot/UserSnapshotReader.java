@@ -0,0 +1,160 @@
+package com.example.clearsolutionstest.snapshot;
+
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.FIXED_RECORD_SIZE;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.FORMAT_VERSION;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.HEADER_SIZE;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.MAGIC;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.NULL_EPOCH_DAY;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.NULL_LENGTH;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.NULL_VERSION;
+
+import com.example.clearsolutionstest.entity.User;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a snapshot file through memory-mapped windows, so the file is never copied onto the heap
+ * as a whole and files larger than 2 GB work. The checksum from the header is verified in a
+ * first pass over the file before any record is returned, so a corrupted file is rejected before
+ * anything is restored from it; the record count is verified once the last record has been read.
+ */
+public class UserSnapshotReader implements Closeable {
+
+  private static final long WINDOW_SIZE = 1L << 26;
+
+  private final FileChannel channel;
+  private final long size;
+  private final long records;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private int recordEnd;
+  private long read;
+
+  public UserSnapshotReader(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.size = channel.size();
+    if (size < HEADER_SIZE) {
+      channel.close();
+      throw new IllegalStateException("Snapshot " + path + " is truncated.");
+    }
+    ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+    if (header.getLong() != MAGIC || header.getInt() != FORMAT_VERSION) {
+      channel.close();
+      throw new IllegalStateException(path + " is not a users snapshot.");
+    }
+    header.getInt();
+    this.records = header.getLong();
+    long expectedChecksum = header.getLong();
+    try {
+      verifyChecksum(expectedChecksum);
+    } catch (IOException | IllegalStateException e) {
+      channel.close();
+      throw e;
+    }
+    map(HEADER_SIZE);
+  }
+
+  public long getRecords() {
+    return records;
+  }
+
+  /** Returns the next user, or null after the last one once the file has been verified. */
+  public User next() throws IOException {
+    if (read == records) {
+      verify();
+      return null;
+    }
+    if (window.remaining() < Integer.BYTES
+        || window.remaining() < Integer.BYTES + window.getInt(window.position())) {
+      map(windowStart + window.position());
+    }
+    if (window.remaining() < Integer.BYTES + FIXED_RECORD_SIZE) {
+      throw new IllegalStateException("Snapshot is truncated after " + read + " users.");
+    }
+
+    int start = window.position();
+    int length = window.getInt();
+    if (length < FIXED_RECORD_SIZE || window.remaining() < length) {
+      throw new IllegalStateException("Snapshot is truncated after " + read + " users.");
+    }
+    recordEnd = start + Integer.BYTES + length;
+
+    User user = new User();
+    user.setId(window.getLong());
+    long version = window.getLong();
+    user.setVersion(version == NULL_VERSION ? null : version);
+    int epochDay = window.getInt();
+    if (epochDay != NULL_EPOCH_DAY) {
+      LocalDate birthDate = LocalDate.ofEpochDay(epochDay);
+      user.setBirthDate(Date.valueOf(birthDate));
+      user.setBirthMonthDay(User.toBirthMonthDay(birthDate));
+    }
+    user.setEmail(readString());
+    user.setFirstname(readString());
+    user.setLastname(readString());
+    user.setAddress(readString());
+    user.setPhoneNumber(readString());
+    if (window.position() != recordEnd) {
+      throw corrupted();
+    }
+    read++;
+    return user;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private String readString() {
+    if (window.position() + Short.BYTES > recordEnd) {
+      throw corrupted();
+    }
+    short length = window.getShort();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    if (length < 0 || window.position() + length > recordEnd) {
+      throw corrupted();
+    }
+    byte[] bytes = new byte[length];
+    window.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private void verify() {
+    if (windowStart + window.position() != size) {
+      throw new IllegalStateException("Snapshot holds more data than its " + records + " users.");
+    }
+  }
+
+  private void verifyChecksum(long expectedChecksum) throws IOException {
+    CRC32 checksum = new CRC32();
+    for (long position = HEADER_SIZE; position < size; position += WINDOW_SIZE) {
+      checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+          Math.min(WINDOW_SIZE, size - position)));
+    }
+    if (checksum.getValue() != expectedChecksum) {
+      throw new IllegalStateException("Snapshot checksum does not match its contents.");
+    }
+  }
+
+  private IllegalStateException corrupted() {
+    return new IllegalStateException("Snapshot record " + read + " is corrupted.");
+  }
+
+  private void map(long position) throws IOException {
+    windowStart = position;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+        Math.min(WINDOW_SIZE, size - position));
+  }
+}
@@ -0,0 +1,12 @@
+package com.example.clearsolutionstest.snapshot;
+
+import lombok.Value;
+
+@Value
+public class UserSnapshotResult {
+
+  String path;
+  long users;
+  long bytes;
+  long millis;
+}
@@ -0,0 +1,173 @@
+package com.example.clearsolutionstest.snapshot;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.SequenceGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Exports the users table to a binary snapshot file and restores it into an empty database at
+ * startup. The restore runs as an {@link ApplicationRunner}, so it completes before the
+ * application reports itself ready, and it moves the id sequence past the restored ids.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class UserSnapshotService implements ApplicationRunner {
+
+  private final UserRepository repository;
+  private final TransactionTemplate transactionTemplate;
+  private final MeterRegistry meterRegistry;
+  private final String path;
+  private final boolean restoreOnStartup;
+  private final int batchSize;
+
+  public UserSnapshotService(UserRepository repository, TransactionTemplate transactionTemplate,
+      MeterRegistry meterRegistry, @Value("${users.snapshot.path}") String path,
+      @Value("${users.snapshot.restore-on-startup}") boolean restoreOnStartup,
+      @Value("${users.batch.size}") int batchSize,
+      @Value("${users.sharding.enabled}") boolean sharded) {
+    if (sharded && !path.isEmpty()) {
+      // Snapshots cover the JPA users table, which stays empty while users live on shards.
+      throw new IllegalStateException(
+          "'users.snapshot.path' cannot be set while 'users.sharding.enabled' is true.");
+    }
+    this.repository = repository;
+    this.transactionTemplate = transactionTemplate;
+    this.meterRegistry = meterRegistry;
+    this.path = path;
+    this.restoreOnStartup = restoreOnStartup;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    if (!restoreOnStartup || path.isEmpty() || !Files.exists(Path.of(path))) {
+      return;
+    }
+    if (repository.count() > 0) {
+      log.warn("Skipping restore from {} because the users table is not empty", path);
+      return;
+    }
+    restore(Path.of(path));
+  }
+
+  public synchronized UserSnapshotResult export() throws IOException {
+    if (path.isEmpty()) {
+      throw new IllegalStateException("'users.snapshot.path' is not configured.");
+    }
+    Path target = Path.of(path).toAbsolutePath();
+    Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+    long started = System.nanoTime();
+
+    long users;
+    long bytes;
+    try {
+      try (UserSnapshotWriter writer = new UserSnapshotWriter(temporary)) {
+        transactionTemplate.executeWithoutResult(status -> repository.forEachUser(user -> {
+          try {
+            writer.write(user);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }));
+        bytes = writer.finish();
+        users = writer.getRecords();
+      }
+      Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+
+    long millis = elapsed("export", started);
+    log.info("Exported {} users to {} ({} bytes) in {} ms", users, target, bytes, millis);
+    return new UserSnapshotResult(target.toString(), users, bytes, millis);
+  }
+
+  /**
+   * Inserts the snapshot's users and moves the id sequence past them in one transaction, so a
+   * record that turns out to be unreadable leaves the table empty. The reader has already
+   * rejected files whose checksum does not match.
+   */
+  public UserSnapshotResult restore(Path source) throws IOException {
+    long started = System.nanoTime();
+    try (UserSnapshotReader reader = new UserSnapshotReader(source)) {
+      try {
+        transactionTemplate.executeWithoutResult(status -> {
+          try {
+            insertAll(reader);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+
+      long millis = elapsed("restore", started);
+      log.info("Restored {} users from {} in {} ms", reader.getRecords(), source, millis);
+      return new UserSnapshotResult(source.toString(), reader.getRecords(), Files.size(source),
+          millis);
+    }
+  }
+
+  private void insertAll(UserSnapshotReader reader) throws IOException {
+    long maxId = 0;
+    List<User> batch = new ArrayList<>(batchSize);
+    User user;
+    while ((user = reader.next()) != null) {
+      batch.add(user);
+      maxId = Math.max(maxId, user.getId());
+      if (batch.size() == batchSize) {
+        repository.insertWithIds(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      repository.insertWithIds(batch);
+    }
+    if (reader.getRecords() > 0) {
+      repository.restartIdSequence(maxId + idAllocationSize());
+    }
+  }
+
+  private long elapsed(String operation, long started) {
+    long nanos = System.nanoTime() - started;
+    Timer.builder("users.snapshot").tag("operation", operation).register(meterRegistry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * Hibernate's pooled optimizer hands out the block of ids that ends at the value it reads from
+   * the sequence, so the sequence has to restart one allocation block past the highest id.
+   */
+  private static int idAllocationSize() {
+    try {
+      return User.class.getDeclaredField("id").getAnnotation(SequenceGenerator.class)
+          .allocationSize();
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
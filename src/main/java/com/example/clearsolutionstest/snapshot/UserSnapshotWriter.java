@@ -0,0 +1,106 @@
+package com.example.clearsolutionstest.snapshot;
+
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.FIXED_RECORD_SIZE;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.HEADER_SIZE;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.MAX_STRING_BYTES;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.NULL_EPOCH_DAY;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.NULL_LENGTH;
+import static com.example.clearsolutionstest.snapshot.UserSnapshotFormat.NULL_VERSION;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.util.BirthDates;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes users to a snapshot file through a direct buffer. The header is written last, so a file
+ * whose header is missing or inconsistent was not finished.
+ */
+public class UserSnapshotWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final CRC32 checksum = new CRC32();
+  private long records;
+
+  public UserSnapshotWriter(Path path) throws IOException {
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    channel.position(HEADER_SIZE);
+  }
+
+  public void write(User user) throws IOException {
+    byte[][] strings = {bytes(user.getEmail()), bytes(user.getFirstname()),
+        bytes(user.getLastname()), bytes(user.getAddress()), bytes(user.getPhoneNumber())};
+    int length = FIXED_RECORD_SIZE;
+    for (byte[] value : strings) {
+      length += Short.BYTES + (value == null ? 0 : value.length);
+    }
+    if (buffer.remaining() < Integer.BYTES + length) {
+      flush();
+    }
+
+    buffer.putInt(length);
+    buffer.putLong(user.getId());
+    buffer.putLong(user.getVersion() == null ? NULL_VERSION : user.getVersion());
+    buffer.putInt(user.getBirthDate() == null ? NULL_EPOCH_DAY
+        : (int) BirthDates.toLocalDate(user.getBirthDate()).toEpochDay());
+    for (byte[] value : strings) {
+      if (value == null) {
+        buffer.putShort((short) NULL_LENGTH);
+      } else {
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+      }
+    }
+    records++;
+  }
+
+  public long getRecords() {
+    return records;
+  }
+
+  /** Flushes the remaining records, writes the header and forces the file to disk. */
+  public long finish() throws IOException {
+    flush();
+    ByteBuffer header = UserSnapshotFormat.header(records, checksum.getValue());
+    while (header.hasRemaining()) {
+      channel.write(header, HEADER_SIZE - header.remaining());
+    }
+    channel.force(true);
+    return channel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    checksum.update(buffer.duplicate());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static byte[] bytes(String value) {
+    if (value == null) {
+      return null;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > MAX_STRING_BYTES) {
+      throw new IllegalArgumentException("A user field is too long for the snapshot format.");
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,22 @@
+package com.example.clearsolutionstest.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/** Converts birth dates between the API's {@code Date} values and calendar days. */
+public final class BirthDates {
+
+  private BirthDates() {
+  }
+
+  /** The day a birth date falls on in the system zone, which is how it is stored. */
+  public static LocalDate toLocalDate(Date date) {
+    return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+
+  public static Date toDate(LocalDate date) {
+    return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+  }
+}
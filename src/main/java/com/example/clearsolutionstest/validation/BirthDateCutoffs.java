@@ -0,0 +1,73 @@
+package com.example.clearsolutionstest.validation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Answers birth-date checks with a single comparison against day boundaries that are computed
+ * once per day in the configured zone, instead of building a {@code Period} for every user.
+ */
+public class BirthDateCutoffs {
+
+  private final int adultAge;
+  private final ZoneId zone;
+  private final Clock clock;
+  private volatile Cutoffs cutoffs;
+
+  public BirthDateCutoffs(int adultAge, ZoneId zone, Clock clock) {
+    this.adultAge = adultAge;
+    this.zone = zone;
+    this.clock = clock;
+  }
+
+  public boolean isAdult(Date birthDate) {
+    return birthDate != null && birthDate.getTime() < current().adultBefore;
+  }
+
+  public boolean isNotInFuture(Date birthDate) {
+    return birthDate != null && birthDate.getTime() < current().tomorrow;
+  }
+
+  public long adultCutoffEpochDay() {
+    return current().adultCutoffEpochDay;
+  }
+
+  private Cutoffs current() {
+    Cutoffs current = cutoffs;
+    long now = clock.millis();
+    if (current == null || now >= current.tomorrow || now < current.today) {
+      current = compute(now);
+      cutoffs = current;
+    }
+    return current;
+  }
+
+  private Cutoffs compute(long now) {
+    LocalDate today = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+    LocalDate adultCutoff = today.minusYears(adultAge);
+    return new Cutoffs(adultCutoff.toEpochDay(), startOfDay(adultCutoff.plusDays(1)),
+        startOfDay(today), startOfDay(today.plusDays(1)));
+  }
+
+  private long startOfDay(LocalDate date) {
+    return date.atStartOfDay(zone).toInstant().toEpochMilli();
+  }
+
+  private static final class Cutoffs {
+
+    private final long adultCutoffEpochDay;
+    private final long adultBefore;
+    private final long today;
+    private final long tomorrow;
+
+    private Cutoffs(long adultCutoffEpochDay, long adultBefore, long today, long tomorrow) {
+      this.adultCutoffEpochDay = adultCutoffEpochDay;
+      this.adultBefore = adultBefore;
+      this.today = today;
+      this.tomorrow = tomorrow;
+    }
+  }
+}
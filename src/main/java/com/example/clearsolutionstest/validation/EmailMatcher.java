@@ -0,0 +1,6 @@
+package com.example.clearsolutionstest.validation;
+
+public interface EmailMatcher {
+
+  boolean matches(String email);
+}
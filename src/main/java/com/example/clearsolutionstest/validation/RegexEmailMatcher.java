@@ -0,0 +1,19 @@
+package com.example.clearsolutionstest.validation;
+
+import java.util.regex.Pattern;
+
+public class RegexEmailMatcher implements EmailMatcher {
+
+  public static final String DEFAULT_REGEXP = "(?im)^(?<c1>\\\"?)\\w+(?:[\\W&&[^@]]?)\\w+\\k<c1>@(?:\\[?(?:\\d{3}\\.?){0,4}\\]?|(?:[\\w&&[^\\d]]+[\\.\\-]?)*(?<=\\.\\w{2,6}))$";
+
+  private final Pattern pattern;
+
+  public RegexEmailMatcher(String regexp) {
+    this.pattern = Pattern.compile(regexp);
+  }
+
+  @Override
+  public boolean matches(String email) {
+    return email != null && pattern.matcher(email).matches();
+  }
+}
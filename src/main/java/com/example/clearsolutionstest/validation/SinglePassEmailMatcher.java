@@ -0,0 +1,100 @@
+package com.example.clearsolutionstest.validation;
+
+/**
+ * Hand-written equivalent of {@link RegexEmailMatcher#DEFAULT_REGEXP}. It walks the address once,
+ * never backtracks and allocates nothing. It does not honour a custom configured pattern.
+ */
+public class SinglePassEmailMatcher implements EmailMatcher {
+
+  @Override
+  public boolean matches(String email) {
+    if (email == null) {
+      return false;
+    }
+    int at = email.indexOf('@');
+    if (at < 0) {
+      return false;
+    }
+    int length = email.length();
+    return isValidLocalPart(email, 0, at) && (isValidAddressLiteral(email, at + 1, length)
+        || isValidHostName(email, at + 1, length));
+  }
+
+  // "?\w+[\W&&[^@]]?\w+\k<c1>
+  private static boolean isValidLocalPart(String s, int start, int end) {
+    if (start < end && s.charAt(start) == '"') {
+      if (end - start < 2 || s.charAt(end - 1) != '"') {
+        return false;
+      }
+      start++;
+      end--;
+    }
+    if (end - start < 2 || !isWordChar(s.charAt(start)) || !isWordChar(s.charAt(end - 1))) {
+      return false;
+    }
+    boolean separatorSeen = false;
+    for (int i = start + 1; i < end - 1; i++) {
+      if (!isWordChar(s.charAt(i))) {
+        if (separatorSeen) {
+          return false;
+        }
+        separatorSeen = true;
+      }
+    }
+    return true;
+  }
+
+  // \[?(?:\d{3}\.?){0,4}\]?
+  private static boolean isValidAddressLiteral(String s, int start, int end) {
+    int i = start;
+    if (i < end && s.charAt(i) == '[') {
+      i++;
+    }
+    if (end > i && s.charAt(end - 1) == ']') {
+      end--;
+    }
+    int groups = 0;
+    while (i < end) {
+      if (end - i < 3 || !isDigit(s.charAt(i)) || !isDigit(s.charAt(i + 1))
+          || !isDigit(s.charAt(i + 2)) || ++groups > 4) {
+        return false;
+      }
+      i += 3;
+      if (i < end && s.charAt(i) == '.') {
+        i++;
+      }
+    }
+    return true;
+  }
+
+  // (?:[\w&&[^\d]]+[\.\-]?)*(?<=\.\w{2,6})
+  private static boolean isValidHostName(String s, int start, int end) {
+    int lastSeparator = -1;
+    boolean afterSeparator = true;
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (c == '.' || c == '-') {
+        if (afterSeparator) {
+          return false;
+        }
+        afterSeparator = true;
+        lastSeparator = i;
+      } else if (isWordChar(c) && !isDigit(c)) {
+        afterSeparator = false;
+      } else {
+        return false;
+      }
+    }
+    int topLevelLength = end - lastSeparator - 1;
+    return lastSeparator >= 0 && s.charAt(lastSeparator) == '.' && topLevelLength >= 2
+        && topLevelLength <= 6;
+  }
+
+  private static boolean isWordChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -1,12 +1,14 @@
 package com.example.clearsolutionstest.validation;
 
 import com.example.clearsolutionstest.entity.User;
-import java.time.LocalDate;
-import java.time.Period;
-import java.time.ZoneId;
-import java.util.Date;
-import java.util.regex.Pattern;
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
@@ -14,8 +16,25 @@ import org.springframework.validation.Validator;
 @Component
 public class UserValidator implements Validator {
 
-  @Value("${adultAge}")
-  private int adultAge;
+  private final EmailMatcher emailMatcher;
+  private final BirthDateCutoffs birthDateCutoffs;
+  private final Timer validationTimer;
+  private final Map<UserViolation, Counter> failureCounters = new EnumMap<>(UserViolation.class);
+
+  public UserValidator(EmailMatcher emailMatcher, BirthDateCutoffs birthDateCutoffs,
+      MeterRegistry meterRegistry) {
+    this.emailMatcher = emailMatcher;
+    this.birthDateCutoffs = birthDateCutoffs;
+    this.validationTimer = Timer.builder("users.validation")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    for (UserViolation violation : UserViolation.values()) {
+      failureCounters.put(violation, Counter.builder("users.validation.failures")
+          .tag("field", violation.getField())
+          .tag("code", violation.getCode())
+          .register(meterRegistry));
+    }
+  }
 
   @Override
   public boolean supports(Class<?> clazz) {
@@ -24,51 +43,45 @@ public class UserValidator implements Validator {
 
   @Override
   public void validate(Object target, Errors errors) {
-    User user = (User) target;
+    for (UserViolation violation : check((User) target)) {
+      errors.rejectValue(violation.getField(), violation.getCode(), violation.getMessage());
+    }
+  }
 
+  public List<UserViolation> check(User user) {
+    return validationTimer.record(() -> checkUser(user));
+  }
+
+  private List<UserViolation> checkUser(User user) {
+    List<UserViolation> violations = Collections.emptyList();
     if (isBlank(user.getLastname())) {
-      errors.rejectValue("lastname", "user.lastname.invalid", "Invalid lastname address.");
+      violations = reject(violations, UserViolation.LASTNAME_INVALID);
     }
     if (isBlank(user.getFirstname())) {
-      errors.rejectValue("firstname", "user.firstname.invalid", "Invalid firstname address.");
+      violations = reject(violations, UserViolation.FIRSTNAME_INVALID);
     }
 
-    if (!isValidEmail(user.getEmail())) {
-      errors.rejectValue("email", "user.email.invalid", "Invalid e-mail address.");
+    if (!emailMatcher.matches(user.getEmail())) {
+      violations = reject(violations, UserViolation.EMAIL_INVALID);
     }
 
-    if (!isValidBirthDate(user.getBirthDate())) {
-      errors.rejectValue("birthDate", "user.birthDate.invalid",
-          "Birth date is after current date.");
+    if (!birthDateCutoffs.isNotInFuture(user.getBirthDate())) {
+      violations = reject(violations, UserViolation.BIRTH_DATE_IN_FUTURE);
     }
 
-    if (!isAdult(user.getBirthDate())) {
-      errors.rejectValue("birthDate", "user.birthDate.invalid", "User is too young.");
+    if (!birthDateCutoffs.isAdult(user.getBirthDate())) {
+      violations = reject(violations, UserViolation.BIRTH_DATE_TOO_YOUNG);
     }
-
+    return violations;
   }
 
-  private boolean isAdult(Date birthDate) {
-    if (birthDate != null) {
-      LocalDate birthLocalDate = birthDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-
-      LocalDate currentDate = LocalDate.now();
-
-      Period period = Period.between(birthLocalDate, currentDate);
-
-      return period.getYears() >= adultAge;
+  private List<UserViolation> reject(List<UserViolation> violations, UserViolation violation) {
+    failureCounters.get(violation).increment();
+    if (violations.isEmpty()) {
+      violations = new ArrayList<>(UserViolation.values().length);
     }
-    return false;
-  }
-
-  private boolean isValidBirthDate(Date birthDate) {
-    Date currentDate = new Date();
-    return birthDate != null && birthDate.before(currentDate);
-  }
-
-  private boolean isValidEmail(String email) {
-    String emailPattern = "(?im)^(?<c1>\\\"?)\\w+(?:[\\W&&[^@]]?)\\w+\\k<c1>@(?:\\[?(?:\\d{3}\\.?){0,4}\\]?|(?:[\\w&&[^\\d]]+[\\.\\-]?)*(?<=\\.\\w{2,6}))$";
-    return email != null && Pattern.compile(emailPattern).matcher(email).matches();
+    violations.add(violation);
+    return violations;
   }
 
   private boolean isBlank(String value) {
@@ -0,0 +1,18 @@
+package com.example.clearsolutionstest.validation;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum UserViolation {
+  LASTNAME_INVALID("lastname", "user.lastname.invalid", "Invalid lastname address."),
+  FIRSTNAME_INVALID("firstname", "user.firstname.invalid", "Invalid firstname address."),
+  EMAIL_INVALID("email", "user.email.invalid", "Invalid e-mail address."),
+  BIRTH_DATE_IN_FUTURE("birthDate", "user.birthDate.invalid", "Birth date is after current date."),
+  BIRTH_DATE_TOO_YOUNG("birthDate", "user.birthDate.invalid", "User is too young.");
+
+  private final String field;
+  private final String code;
+  private final String message;
+}
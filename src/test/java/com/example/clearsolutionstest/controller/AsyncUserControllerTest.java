@@ -0,0 +1,122 @@
+package com.example.clearsolutionstest.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.ExportFormat;
+import com.example.clearsolutionstest.service.UserService;
+import com.example.clearsolutionstest.validation.UserValidator;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "spring.mvc.async.request-timeout=200ms")
+@AutoConfigureMockMvc
+@ActiveProfiles("async")
+public class AsyncUserControllerTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private UserValidator validator;
+
+  @MockBean
+  private UserService userService;
+
+  @Test
+  public void testGetUserRunsAsynchronously() throws Exception {
+    User user = new User();
+    user.setId(1L);
+    user.setVersion(3L);
+    user.setEmail("john@example.com");
+    when(userService.getUser(1L)).thenReturn(user);
+
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/users/1"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.email").value("john@example.com"));
+  }
+
+  @Test
+  public void testDeleteUserNotFoundRunsAsynchronously() throws Exception {
+    doThrow(new NoSuchElementException()).when(userService).deleteUser(2L);
+
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.delete("/users/2"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void testCreateUserWithInvalidDataRunsAsynchronously() throws Exception {
+    MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/users")
+            .contentType(MediaType.APPLICATION_JSON).content("{\"email\": \"not-an-email\"}"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testExportOutlastingTheAsyncTimeoutRunsOnTheContainerThread() throws Exception {
+    doAnswer(invocation -> {
+      Thread.sleep(500);
+      invocation.getArgument(3, OutputStream.class)
+          .write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+      return null;
+    }).when(userService).exportUsersByBirthDateRange(any(), any(), any(ExportFormat.class), any());
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/export")
+            .param("from", "1990-01-01").param("to", "2000-01-01"))
+        .andExpect(request().asyncNotStarted())
+        .andExpect(status().isOk())
+        .andExpect(content().string("{\"id\":1}\n"));
+  }
+
+  @Test
+  public void testRejectedWorkIsAnsweredWithServiceUnavailable() {
+    AsyncUserController controller = new AsyncUserController(userService, validator,
+        command -> {
+          throw new RejectedExecutionException();
+        });
+
+    ResponseEntity<?> response = controller.getUser(1L, null).join();
+
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+  }
+}
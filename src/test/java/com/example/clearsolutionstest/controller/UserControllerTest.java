@@ -1,18 +1,35 @@
 package com.example.clearsolutionstest.controller;
 
 import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.request.DistributionBucketType;
+import com.example.clearsolutionstest.request.ExportFormat;
 import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.response.DistributionBucket;
+import com.example.clearsolutionstest.response.KeysetSlice;
+import com.example.clearsolutionstest.response.UserBatchItemResult;
+import com.example.clearsolutionstest.response.UserImportSummary;
+import com.example.clearsolutionstest.response.UserLookupResult;
 import com.example.clearsolutionstest.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -20,13 +37,19 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Date;
 import java.util.NoSuchElementException;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,6 +59,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureMetrics
 public class UserControllerTest {
 
   @Autowired
@@ -71,6 +95,98 @@ public class UserControllerTest {
         .content("{ \"firstName\": null }")).andExpect(status().isBadRequest());
   }
 
+  @Test
+  public void testInvalidUserIsReportedInPrometheusScrape() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.post("/users").contentType(MediaType.APPLICATION_JSON)
+        .content("{ \"firstname\": \"John\" }")).andExpect(status().isBadRequest());
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.content().string(containsString(
+            "users_validation_failures_total{code=\"user.email.invalid\",field=\"email\",}")))
+        .andExpect(MockMvcResultMatchers.content().string(
+            containsString("hikaricp_connections_max")))
+        .andExpect(MockMvcResultMatchers.content().string(
+            containsString("users_validation_seconds_bucket")))
+        .andExpect(MockMvcResultMatchers.content().string(
+            containsString("hibernate_sessions_open_total")))
+        .andExpect(MockMvcResultMatchers.content().string(
+            containsString("users_rate_limit_in_flight")));
+  }
+
+  @Test
+  public void testCreateUsersBatch() throws Exception {
+    when(userService.createAll(anyList())).thenReturn(
+        List.of(UserBatchItemResult.created(0, 1L, "email@example.com"),
+            UserBatchItemResult.duplicateEmail(1, "email@example.com")));
+
+    mockMvc.perform(MockMvcRequestBuilders.post("/users/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[{\"email\": \"email@example.com\"}, {\"email\": \"email@example.com\"}]"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("CREATED"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("DUPLICATE_EMAIL"));
+  }
+
+  @Test
+  public void testGetUser() throws Exception {
+    User user = new User();
+    user.setId(1L);
+    user.setEmail("email@example.com");
+    when(userService.getUser(1L)).thenReturn(user);
+    when(userService.getUser(2L)).thenThrow(new NoSuchElementException());
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/{userId}", 1L))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.email").value("email@example.com"));
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/{userId}", 2L))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void testGetUserConditionalRequest() throws Exception {
+    User user = new User();
+    user.setId(1L);
+    user.setVersion(4L);
+    when(userService.getUser(1L)).thenReturn(user);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/{userId}", 1L))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.header().string("ETag", "\"4\""))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.version").doesNotExist());
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/{userId}", 1L)
+            .header("If-None-Match", "\"4\""))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void testUpdateUserNonRequiredDataIfMatchConflict() throws Exception {
+    Long userId = 1L;
+    when(userService.updateUserNonRequiredData(eq(userId),
+        any(UserUpdateNonRequiredDataRequest.class), eq(3L)))
+        .thenThrow(new OptimisticLockingFailureException("conflict"));
+
+    mockMvc.perform(MockMvcRequestBuilders.patch("/users/{userId}", userId)
+            .header("If-Match", "\"3\"")
+            .contentType(MediaType.APPLICATION_JSON).content("{ \"address\": \"UpdatedAddress\" }"))
+        .andExpect(status().isPreconditionFailed());
+  }
+
+  @Test
+  public void testUpdateAllUserFieldsIfMatch() throws Exception {
+    Long userId = 1L;
+    User updatedUser = new User();
+    updatedUser.setFirstname("Updated Firstname");
+    updatedUser.setVersion(6L);
+    when(userService.update(eq(userId), any(User.class), eq(5L))).thenReturn(updatedUser);
+
+    mockMvc.perform(MockMvcRequestBuilders.put("/users/{userId}", userId)
+            .header("If-Match", "\"5\"")
+            .contentType(MediaType.APPLICATION_JSON).content("{\"firstname\":\"Updated Firstname\"}"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.header().string("ETag", "\"6\""));
+  }
+
   @Test
   public void testUpdateUserNonRequiredData() throws Exception {
     Long userId = 1L;
@@ -143,6 +259,15 @@ public class UserControllerTest {
     verify(userService, times(1)).deleteUser(userId);
   }
 
+  @Test
+  public void testDeleteUserNotFound() throws Exception {
+    Long userId = 1L;
+
+    doThrow(new NoSuchElementException()).when(userService).deleteUser(userId);
+
+    mockMvc.perform(delete("/users/{userId}", userId)).andExpect(status().isNotFound());
+  }
+
   @Test
   public void testSearchUsersByBirthDateRangeSuccess() throws Exception {
     SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
@@ -160,5 +285,218 @@ public class UserControllerTest {
     verify(userService, times(1)).findUsersByBirthDateRange(eq(fromDateAsDate), eq(toDateAsDate),
         eq(pageable));
   }
-}
 
+  @Test
+  public void testSearchUsersByBirthDateRangeNotModified() throws Exception {
+    User user = new User();
+    user.setId(1L);
+    user.setVersion(0L);
+    when(userService.findUsersByBirthDateRange(any(Date.class), any(Date.class),
+        any(Pageable.class))).thenReturn(new PageImpl<>(List.of(user), PageRequest.of(0, 10), 1));
+
+    String eTag = mockMvc.perform(MockMvcRequestBuilders.get("/users/search")
+            .param("from", "2003-09-27").param("to", "2003-09-28"))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader("ETag");
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/search").param("from", "2003-09-27")
+            .param("to", "2003-09-28").header("If-None-Match", eTag))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void testSearchUsersByBirthDateRangeKeyset() throws Exception {
+    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    Date fromDateAsDate = dateFormat.parse("2003-09-27");
+    Date toDateAsDate = dateFormat.parse("2003-09-28");
+
+    when(userService.findUsersByBirthDateRangeAfter(fromDateAsDate, toDateAsDate, "abc", 20))
+        .thenReturn(new KeysetSlice<>(Collections.emptyList(), 20, true, "def"));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/search").param("from", "2003-09-27")
+            .param("to", "2003-09-28").param("pagination", "KEYSET").param("after", "abc")
+            .param("size", "20"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value("def"));
+  }
+
+  @Test
+  public void testSearchUsersByBirthDateRangeSlice() throws Exception {
+    Pageable pageable = PageRequest.of(0, 10);
+    when(userService.findUserSliceByBirthDateRange(any(Date.class), any(Date.class),
+        eq(pageable))).thenReturn(new SliceImpl<>(Collections.emptyList(), pageable, false));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/search").param("from", "2003-09-27")
+            .param("to", "2003-09-28").param("pagination", "SLICE"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.last").value(true))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").doesNotExist());
+
+    verify(userService, never()).findUsersByBirthDateRange(any(Date.class), any(Date.class),
+        any(Pageable.class));
+  }
+
+  @Test
+  public void testSearchUsersByBirthDateRangeWritesCompactPage() throws Exception {
+    when(userService.findUsersByBirthDateRange(any(Date.class), any(Date.class),
+        any(Pageable.class))).thenReturn(
+        new PageImpl<>(List.of(searchedUser()), PageRequest.of(0, 10), 1));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/search").param("from", "1990-01-01")
+            .param("to", "1990-12-31"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].email")
+            .value("searched@example.com"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].birthDate").value("1990-01-02"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].address").isEmpty())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].version").doesNotExist())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(1))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.last").value(true))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.pageable").doesNotExist())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.sort").doesNotExist());
+  }
+
+  @Test
+  public void testSearchUsersByBirthDateRangeInBinaryFormats() throws Exception {
+    when(userService.findUsersByBirthDateRange(any(Date.class), any(Date.class),
+        any(Pageable.class))).thenReturn(
+        new PageImpl<>(List.of(searchedUser()), PageRequest.of(0, 10), 1));
+
+    for (ObjectMapper reader : List.of(new ObjectMapper(new CBORFactory()),
+        new ObjectMapper(new SmileFactory()))) {
+      MediaType mediaType = reader.getFactory() instanceof CBORFactory
+          ? MediaType.APPLICATION_CBOR : MediaType.valueOf("application/x-jackson-smile");
+      byte[] body = mockMvc.perform(MockMvcRequestBuilders.get("/users/search")
+              .param("from", "1990-01-01").param("to", "1990-12-31").accept(mediaType))
+          .andExpect(status().isOk())
+          .andExpect(MockMvcResultMatchers.content().contentType(mediaType))
+          .andReturn().getResponse().getContentAsByteArray();
+
+      JsonNode page = reader.readTree(body);
+      assertEquals("searched@example.com", page.at("/content/0/email").asText());
+      assertEquals("1990-01-02", page.at("/content/0/birthDate").asText());
+      assertEquals(1, page.get("totalElements").asLong());
+    }
+  }
+
+  private static User searchedUser() {
+    User user = new User();
+    user.setId(1L);
+    user.setVersion(0L);
+    user.setEmail("searched@example.com");
+    user.setFirstname("Searched");
+    user.setLastname("User");
+    user.setBirthDate(java.sql.Date.valueOf("1990-01-02"));
+    return user;
+  }
+
+  @Test
+  public void testFindUsersWithUpcomingBirthday() throws Exception {
+    Pageable pageable = PageRequest.of(0, 10);
+    when(userService.findUsersWithBirthdayWithin(7, pageable))
+        .thenReturn(new PageImpl<>(Collections.emptyList(), pageable, 0));
+    when(userService.findUsersWithBirthdayWithin(-1, pageable))
+        .thenThrow(new IllegalArgumentException("'withinDays' must not be negative."));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/birthdays").param("withinDays", "7"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(0));
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/birthdays").param("withinDays", "-1"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testLookupUsers() throws Exception {
+    when(userService.lookupUsers("smi", 5)).thenReturn(
+        List.of(new UserLookupResult(1L, "john@example.com", "John", "Smith")));
+    when(userService.lookupUsers(" ", 10))
+        .thenThrow(new IllegalArgumentException("The lookup query must not be blank."));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/lookup").param("q", "smi")
+            .param("limit", "5"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].lastname").value("Smith"));
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/lookup").param("q", " "))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testImportUsers() throws Exception {
+    when(userService.importUsers(any(), any(OutputStream.class)))
+        .thenReturn(UserImportSummary.completed(1, 1, 0));
+
+    mockMvc.perform(MockMvcRequestBuilders.post("/users/import").contentType("text/csv")
+            .content("email,firstname,lastname,birthDate\n"
+                + "john@example.com,John,Smith,1990-01-02\n"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.content()
+            .contentTypeCompatibleWith("application/x-ndjson"));
+
+    when(userService.importUsers(any(), any(OutputStream.class)))
+        .thenThrow(new IllegalArgumentException("The CSV header must contain 'email'."));
+    mockMvc.perform(MockMvcRequestBuilders.post("/users/import").contentType("text/csv")
+            .content("name\n"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testStreamChanges() throws Exception {
+    when(userService.subscribeToChanges(7L)).thenReturn(new SseEmitter());
+    when(userService.subscribeToChanges(null))
+        .thenThrow(new IllegalStateException("Too many change feed subscribers."));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/changes").header("Last-Event-ID", "7")
+            .accept(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(MockMvcResultMatchers.request().asyncStarted());
+    verify(userService).subscribeToChanges(7L);
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/changes")
+            .accept(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(MockMvcResultMatchers.header().exists("Retry-After"));
+  }
+
+  @Test
+  public void testGetBirthDateDistribution() throws Exception {
+    when(userService.getBirthDateDistribution(any(Date.class), any(Date.class),
+        eq(DistributionBucketType.MONTH), eq(10)))
+        .thenReturn(List.of(new DistributionBucket("1990-01", 42)));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/distribution").param("from", "1980-01-01")
+            .param("to", "2000-01-01").param("bucket", "MONTH"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].bucket").value("1990-01"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].count").value(42));
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/distribution").param("from", "1980-01-01")
+            .param("to", "2000-01-01").param("bucket", "DECADE"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testSearchUsersByBirthDateRangeWithFields() throws Exception {
+    Pageable pageable = PageRequest.of(0, 10);
+    when(userService.findUserFieldsByBirthDateRange(any(Date.class), any(Date.class),
+        eq(List.of("id", "email")), eq(pageable)))
+        .thenReturn(new PageImpl<>(List.of(Map.of("id", 1L, "email", "a@b.com")), pageable, 1));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/search").param("from", "2003-09-27")
+            .param("to", "2003-09-28").param("fields", "id,email"))
+        .andExpect(status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].email").value("a@b.com"))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].firstname").doesNotExist());
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/search").param("from", "2003-09-27")
+            .param("to", "2003-09-28").param("fields", "id").param("pagination", "KEYSET"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testExportUsersByBirthDateRangeInvalidRange() throws Exception {
+    doThrow(new IllegalArgumentException("The 'From' date must be less than the 'To' date."))
+        .when(userService).exportUsersByBirthDateRange(any(Date.class), any(Date.class),
+            eq(ExportFormat.CSV), any(OutputStream.class));
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/users/export").param("from", "2003-09-28")
+            .param("to", "2003-09-27").param("format", "CSV"))
+        .andExpect(status().isBadRequest());
+  }
+}
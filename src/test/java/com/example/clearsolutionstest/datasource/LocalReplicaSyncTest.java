@@ -0,0 +1,108 @@
+package com.example.clearsolutionstest.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:routing-primary",
+    "users.datasource.replicas.enabled=true",
+    "users.datasource.replicas.urls=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+    "users.datasource.replicas.heartbeat-interval=PT0.05S",
+    "users.datasource.replicas.local-sync.interval=PT0.05S"})
+@DirtiesContext
+public class LocalReplicaSyncTest {
+
+  private static final long TIMEOUT_MILLIS = 10_000;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private DataSourcePools pools;
+
+  @Autowired
+  private ReplicaLagMonitor lagMonitor;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  public void testSearchesReadChangesFromTheReplica() throws InterruptedException {
+    User user = userService.create(newUser("replicated@example.com"));
+    awaitReplicaRows("replicated@example.com", 1);
+    awaitAvailable();
+
+    double replicaConnections = connections("replica-0");
+    List<String> emails = userService.findUsersByBirthDateRange(
+            Date.valueOf("1990-01-01"), Date.valueOf("1990-12-31"), PageRequest.of(0, 100))
+        .map(User::getEmail).getContent();
+
+    assertTrue(emails.contains("replicated@example.com"));
+    assertEquals(replicaConnections + 1, connections("replica-0"));
+
+    userService.deleteUser(user.getId());
+    awaitReplicaRows("replicated@example.com", 0);
+  }
+
+  @Test
+  public void testReadModifyWriteUsesThePrimary() {
+    double replicaConnections = connections("replica-0");
+
+    User user = userService.create(newUser("written@example.com"));
+    User changed = newUser("rewritten@example.com");
+    User updated = userService.update(user.getId(), changed);
+
+    assertEquals("rewritten@example.com", updated.getEmail());
+    assertEquals(replicaConnections, connections("replica-0"));
+    userService.deleteUser(user.getId());
+  }
+
+  private double connections(String pool) {
+    return meterRegistry.get("users.datasource.connections").tag("pool", pool).functionCounter()
+        .count();
+  }
+
+  private void awaitReplicaRows(String email, int expected) throws InterruptedException {
+    JdbcTemplate replica = new JdbcTemplate(pools.getReplicas().get("replica-0"));
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (countByEmail(replica, email) != expected) {
+      assertTrue(System.currentTimeMillis() < deadline, "The replica did not catch up.");
+      Thread.sleep(20);
+    }
+  }
+
+  private void awaitAvailable() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!lagMonitor.isAvailable("replica-0")) {
+      assertTrue(System.currentTimeMillis() < deadline, "The replica did not become available.");
+      Thread.sleep(20);
+    }
+  }
+
+  private static int countByEmail(JdbcTemplate replica, String email) {
+    return replica.queryForObject("select count(*) from users where email = ?", Integer.class,
+        email);
+  }
+
+  private static User newUser(String email) {
+    User user = new User();
+    user.setEmail(email);
+    user.setFirstname("Replica");
+    user.setLastname("Reader");
+    user.setBirthDate(Date.valueOf(LocalDate.of(1990, 6, 15)));
+    return user;
+  }
+}
@@ -0,0 +1,80 @@
+package com.example.clearsolutionstest.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReplicaRoutingDataSourceTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private ReplicaLagMonitor lagMonitor;
+  private ReplicaRoutingDataSource dataSource;
+
+  @BeforeEach
+  public void setUp() {
+    Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+    replicas.put("replica-0", mock(HikariDataSource.class));
+    replicas.put("replica-1", mock(HikariDataSource.class));
+    lagMonitor = mock(ReplicaLagMonitor.class);
+    when(lagMonitor.isAvailable("replica-0")).thenReturn(true);
+    when(lagMonitor.isAvailable("replica-1")).thenReturn(true);
+    dataSource = new ReplicaRoutingDataSource(
+        new DataSourcePools(mock(HikariDataSource.class), replicas), lagMonitor);
+    dataSource.bindTo(meterRegistry);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    ReplicaRoutingDataSource.setReplicaScope(false);
+  }
+
+  @Test
+  public void testReadOnlyServiceTransactionsAlternateBetweenReplicas() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReplicaRoutingDataSource.setReplicaScope(true);
+
+    assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+    assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    assertEquals(2, meterRegistry.get("users.datasource.connections").tag("pool", "replica-0")
+        .functionCounter().count());
+  }
+
+  @Test
+  public void testOtherTransactionsUseThePrimary() {
+    assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    ReplicaRoutingDataSource.setReplicaScope(true);
+    assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  public void testLaggingReplicasAreSkipped() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReplicaRoutingDataSource.setReplicaScope(true);
+    when(lagMonitor.isAvailable("replica-0")).thenReturn(false);
+
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+
+    when(lagMonitor.isAvailable("replica-1")).thenReturn(false);
+    assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+    assertEquals(1, meterRegistry.get("users.datasource.replica.fallbacks").functionCounter()
+        .count());
+  }
+}
@@ -0,0 +1,70 @@
+package com.example.clearsolutionstest.importer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CsvUserReaderTest {
+
+  @Test
+  public void readsExportLayoutWithQuotedFields() throws IOException {
+    CsvUserReader reader = reader(
+        "\uFEFFid,email,firstname,lastname,birthDate,address,phoneNumber\r\n"
+        + "7,john@example.com,John,Smith,1990-01-02,\"Main St, 1\r\n\"\"B\"\"\",\r\n"
+        + "\n"
+        + ",anna@example.com,Anna,Lee,not-a-date,,123\n");
+
+    CsvUserRow first = reader.next();
+    assertEquals(0, first.getIndex());
+    assertTrue(first.isValid());
+    assertNull(first.getUser().getId());
+    assertEquals("john@example.com", first.getUser().getEmail());
+    assertEquals("Main St, 1\r\n\"B\"", first.getUser().getAddress());
+    assertNull(first.getUser().getPhoneNumber());
+    assertEquals(Date.from(LocalDate.of(1990, 1, 2).atStartOfDay(ZoneId.systemDefault())
+        .toInstant()), first.getUser().getBirthDate());
+
+    CsvUserRow second = reader.next();
+    assertEquals(1, second.getIndex());
+    assertNull(second.getUser().getBirthDate());
+    assertEquals("123", second.getUser().getPhoneNumber());
+    assertNull(reader.next());
+  }
+
+  @Test
+  public void matchesColumnsByNameAndRejectsMalformedRecords() throws IOException {
+    CsvUserReader reader = reader("birthDate,lastname,firstname,email\n"
+        + "1990-01-02,Smith,John,john@example.com\n"
+        + "1990-01-02,Smith,John\n");
+
+    assertEquals("Smith", reader.next().getUser().getLastname());
+    CsvUserRow malformed = reader.next();
+    assertFalse(malformed.isValid());
+    assertEquals(List.of(CsvUserReader.MALFORMED_RECORD), malformed.getErrors());
+  }
+
+  @Test
+  public void rejectsUnusableInput() throws IOException {
+    assertThrows(IllegalArgumentException.class, () -> reader(""));
+    assertThrows(IllegalArgumentException.class, () -> reader("email,firstname,lastname\n"));
+
+    CsvUserReader unterminated = reader("email,firstname,lastname,birthDate\n\"abc,"
+        + "x".repeat(200));
+    assertThrows(IllegalArgumentException.class, unterminated::next);
+  }
+
+  private static CsvUserReader reader(String csv) throws IOException {
+    return new CsvUserReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 100);
+  }
+}
@@ -0,0 +1,104 @@
+package com.example.clearsolutionstest.importer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.response.UserBatchItemResult;
+import com.example.clearsolutionstest.response.UserImportSummary;
+import com.example.clearsolutionstest.validation.UserValidator;
+import com.example.clearsolutionstest.validation.UserViolation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+public class UserCsvImporterTest {
+
+  private UserCsvImporter importer;
+
+  @BeforeEach
+  public void setUp() {
+    UserValidator validator = mock(UserValidator.class);
+    when(validator.check(any())).thenAnswer(invocation -> {
+      User user = invocation.getArgument(0);
+      return user.getEmail().startsWith("bad")
+          ? List.of(UserViolation.EMAIL_INVALID) : Collections.emptyList();
+    });
+    importer = new UserCsvImporter(validator, new ObjectMapper(), new SimpleMeterRegistry(), 3,
+        4, 1, 1000, 5);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    importer.stop();
+  }
+
+  @Test
+  public void importsValidRowsInBatchesAndReportsRejections() throws IOException {
+    List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    AtomicLong ids = new AtomicLong();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    UserImportSummary summary = importer.importCsv(csv(23), out, users -> {
+      batchSizes.add(users.size());
+      return users.stream().map(user -> user.getEmail().startsWith("dup")
+              ? UserBatchItemResult.duplicateEmail(0, user.getEmail())
+              : UserBatchItemResult.created(0, ids.incrementAndGet(), user.getEmail()))
+          .collect(Collectors.toList());
+    });
+
+    assertTrue(summary.isCompleted());
+    assertEquals(23, summary.getRows());
+    assertEquals(15, summary.getCreated());
+    assertEquals(8, summary.getRejected());
+    assertTrue(batchSizes.stream().allMatch(size -> size <= 5));
+    assertEquals(18, batchSizes.stream().mapToInt(Integer::intValue).sum());
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(9, lines.length);
+    assertTrue(lines[8].startsWith("{\"rows\":23,"));
+    assertTrue(lines[8].contains("\"completed\":true"));
+    assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"index\":20"));
+  }
+
+  @Test
+  public void stopsAndReportsWhenInsertingFails() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Function<List<User>, List<UserBatchItemResult>> failing = users -> {
+      throw new DataAccessResourceFailureException("database is down");
+    };
+
+    UserImportSummary summary = importer.importCsv(csv(5_000), out, failing);
+
+    assertFalse(summary.isCompleted());
+    assertEquals("database is down", summary.getError());
+    assertTrue(summary.getRows() < 5_000);
+  }
+
+  /** Every fifth row has an invalid email and every sixth a duplicate one. */
+  private static ByteArrayInputStream csv(int rows) {
+    StringBuilder csv = new StringBuilder("email,firstname,lastname,birthDate\n");
+    for (int i = 0; i < rows; i++) {
+      String prefix = i % 5 == 0 ? "bad" : i % 6 == 0 ? "dup" : "user";
+      csv.append(prefix).append(i).append("@example.com,John,Smith,1990-01-02\n");
+    }
+    return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.clearsolutionstest.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.example.clearsolutionstest.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+public class UserJsonSerializerTest {
+
+  @Test
+  public void writesTheSameJsonAsTheBeanSerializer() throws Exception {
+    User requested = user(new Date(631_152_000_000L));
+    User stored = user(java.sql.Date.valueOf("1990-01-01"));
+
+    // Boot writes dates as text; the plain builder writes them as timestamps.
+    for (boolean datesAsText : new boolean[] {true, false}) {
+      ObjectMapper beanMapper = builder(datesAsText).build();
+      ObjectMapper mapper = builder(datesAsText).serializers(new UserJsonSerializer()).build();
+      for (User user : new User[] {requested, stored, new User()}) {
+        assertEquals(beanMapper.writeValueAsString(user), mapper.writeValueAsString(user));
+      }
+    }
+  }
+
+  private static Jackson2ObjectMapperBuilder builder(boolean datesAsText) {
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+    return datesAsText
+        ? builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS) : builder;
+  }
+
+  private static User user(Date birthDate) {
+    User user = new User();
+    user.setId(42L);
+    user.setEmail("john.doe@example.com");
+    user.setFirstname("John");
+    user.setLastname("Doe");
+    user.setBirthDate(birthDate);
+    user.setBirthMonthDay(101);
+    user.setAddress("1 Main St, \"Springfield\"");
+    user.setPhoneNumber("+380 44 123 4567");
+    user.setVersion(7L);
+    return user;
+  }
+}
@@ -0,0 +1,172 @@
+package com.example.clearsolutionstest.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RateLimitingFilterTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private SimpleMeterRegistry meterRegistry;
+  private RateLimitingFilter filter;
+
+  @BeforeEach
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    filter = new RateLimitingFilter(Map.of(
+        RateLimitedEndpoint.SEARCH, new RateLimit(2, 3),
+        RateLimitedEndpoint.DEFAULT, new RateLimit(0, 1)),
+        1, 1, "X-Client-Id", 2, 1000, meterRegistry, nanoTime::get);
+  }
+
+  @Test
+  public void allowsBurstThenRejectsWithRetryAfter() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(200, search("batch-client").getStatus());
+    }
+
+    MockHttpServletResponse rejected = search("batch-client");
+
+    assertEquals(429, rejected.getStatus());
+    assertEquals("1", rejected.getHeader("Retry-After"));
+    assertEquals(1, meterRegistry.get("users.rate-limit.rejections")
+        .tag("endpoint", "search").tag("reason", "rate-limit").counter().count());
+  }
+
+  @Test
+  public void bucketsArePerClientAndRefill() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      search("batch-client");
+    }
+
+    assertEquals(200, search("interactive-client").getStatus());
+    assertEquals(429, search("batch-client").getStatus());
+
+    nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    assertEquals(200, search("batch-client").getStatus());
+  }
+
+  @Test
+  public void unlimitedEndpointIsNotThrottled() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      filter.doFilter(new MockHttpServletRequest("GET", "/users/1"), response,
+          new MockFilterChain());
+      assertEquals(200, response.getStatus());
+    }
+  }
+
+  @Test
+  public void shedsLoadAboveConcurrencyLimit() throws Exception {
+    MockHttpServletResponse nested = new MockHttpServletResponse();
+    FilterChain chain = (request, response) -> filter.doFilter(
+        new MockHttpServletRequest("GET", "/users/2"), nested, new MockFilterChain());
+
+    MockHttpServletResponse outer = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/users/1"), outer, chain);
+
+    assertEquals(200, outer.getStatus());
+    assertEquals(503, nested.getStatus());
+    assertEquals("1", nested.getHeader("Retry-After"));
+    assertEquals(0, inFlight("interactive"));
+    assertNull(outer.getHeader("Retry-After"));
+  }
+
+  @Test
+  public void clientHeadersShareTheirAddressLimit() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      assertEquals(200, search("client-" + i).getStatus());
+    }
+
+    assertEquals(429, search("client-6").getStatus());
+    assertEquals(429, search((String) null).getStatus());
+
+    MockHttpServletRequest other = searchRequest("client-6");
+    other.setRemoteAddr("10.0.0.2");
+    assertEquals(200, search(other).getStatus());
+  }
+
+  @Test
+  public void authenticatedClientsAreLimitedByPrincipal() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      search("client-" + i);
+    }
+
+    MockHttpServletRequest request = searchRequest("client-6");
+    request.setUserPrincipal(() -> "alice");
+    assertEquals(200, search(request).getStatus());
+  }
+
+  @Test
+  public void asyncRequestsHoldTheirPermitUntilTheyComplete() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+    request.setAsyncSupported(true);
+    filter.doFilter(request, new MockHttpServletResponse(),
+        (servletRequest, servletResponse) -> servletRequest.startAsync());
+
+    assertEquals(1, inFlight("interactive"));
+    MockHttpServletResponse shed = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/users/2"), shed, new MockFilterChain());
+    assertEquals(503, shed.getStatus());
+    MockHttpServletResponse feed = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/users/changes"), feed,
+        new MockFilterChain());
+    assertEquals(200, feed.getStatus());
+
+    request.getAsyncContext().complete();
+
+    assertEquals(0, inFlight("interactive"));
+  }
+
+  @Test
+  public void longRunningExportsDoNotBlockSearch() throws Exception {
+    MockHttpServletRequest export = new MockHttpServletRequest("GET", "/users/export");
+    export.setAsyncSupported(true);
+    filter.doFilter(export, new MockHttpServletResponse(),
+        (servletRequest, servletResponse) -> servletRequest.startAsync());
+
+    assertEquals(1, inFlight("bulk"));
+    MockHttpServletResponse secondExport = new MockHttpServletResponse();
+    filter.doFilter(new MockHttpServletRequest("GET", "/users/export"), secondExport,
+        new MockFilterChain());
+    assertEquals(503, secondExport.getStatus());
+    assertEquals(200, search("interactive-client").getStatus());
+    assertEquals(0, inFlight("interactive"));
+
+    export.getAsyncContext().complete();
+
+    assertEquals(0, inFlight("bulk"));
+  }
+
+  private double inFlight(String pool) {
+    return meterRegistry.get("users.rate-limit.in-flight").tag("pool", pool).gauge().value();
+  }
+
+  private MockHttpServletResponse search(String clientId) throws Exception {
+    return search(searchRequest(clientId));
+  }
+
+  private static MockHttpServletRequest searchRequest(String clientId) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/search");
+    if (clientId != null) {
+      request.addHeader("X-Client-Id", clientId);
+    }
+    return request;
+  }
+
+  private MockHttpServletResponse search(MockHttpServletRequest request) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+}
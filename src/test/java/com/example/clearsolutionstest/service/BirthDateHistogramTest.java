@@ -0,0 +1,73 @@
+package com.example.clearsolutionstest.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.clearsolutionstest.repository.UserStore;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+public class BirthDateHistogramTest {
+
+  private final UserStore store = mock(UserStore.class);
+
+  @Test
+  public void loadsCountsAndTracksChanges() {
+    when(store.countByBirthDate()).thenReturn(Map.of(LocalDate.of(1990, 1, 1), 3L));
+    BirthDateHistogram histogram = new BirthDateHistogram(store, true);
+
+    histogram.load();
+    histogram.recordCreated(new Date(90, 0, 1));
+    histogram.recordCreated(new Date(95, 5, 1));
+    histogram.recordDeleted(new Date(90, 0, 1));
+    histogram.recordChanged(new Date(95, 5, 1), new Date(99, 5, 1));
+    histogram.recordChanged(new Date(99, 5, 1), new Date(99, 5, 1));
+
+    assertEquals(Map.of(LocalDate.of(1990, 1, 1), 3L, LocalDate.of(1995, 6, 1), 0L,
+        LocalDate.of(1999, 6, 1), 1L), sums(histogram, LocalDate.of(1980, 1, 1),
+        LocalDate.of(2000, 1, 1)));
+    assertEquals(Map.of(LocalDate.of(1999, 6, 1), 1L), sums(histogram,
+        LocalDate.of(1999, 6, 1), LocalDate.of(2000, 1, 1)));
+  }
+
+  @Test
+  public void keepsChangesRecordedWhileLoading() {
+    BirthDateHistogram histogram = new BirthDateHistogram(store, true);
+    when(store.countByBirthDate()).thenAnswer(invocation -> {
+      histogram.recordCreated(new Date(90, 0, 1));
+      histogram.recordCreated(new Date(95, 5, 1));
+      return Map.of(LocalDate.of(1990, 1, 1), 3L);
+    });
+    histogram.recordCreated(new Date(90, 0, 1));
+    assertFalse(histogram.isLoaded());
+
+    histogram.load();
+
+    assertTrue(histogram.isLoaded());
+    assertEquals(Map.of(LocalDate.of(1990, 1, 1), 4L, LocalDate.of(1995, 6, 1), 1L),
+        sums(histogram, LocalDate.of(1980, 1, 1), LocalDate.of(2000, 1, 1)));
+  }
+
+  @Test
+  public void ignoresChangesWhenDisabled() {
+    BirthDateHistogram histogram = new BirthDateHistogram(store, false);
+
+    histogram.load();
+    histogram.recordCreated(new Date(90, 0, 1));
+
+    assertTrue(histogram.countsBetween(LocalDate.MIN, LocalDate.MAX).isEmpty());
+  }
+
+  private static Map<LocalDate, Long> sums(BirthDateHistogram histogram, LocalDate from,
+      LocalDate to) {
+    Map<LocalDate, Long> sums = new TreeMap<>();
+    histogram.countsBetween(from, to).forEach((date, count) -> sums.put(date, count.sum()));
+    return sums;
+  }
+}
@@ -0,0 +1,45 @@
+package com.example.clearsolutionstest.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BirthdayWindowTest {
+
+  @Test
+  public void windowWithinOneYear() {
+    assertEquals(List.of(new BirthdayWindow(310, 317)),
+        BirthdayWindow.of(LocalDate.of(2026, 3, 10), 7));
+  }
+
+  @Test
+  public void windowAcrossNewYearIsSplit() {
+    assertEquals(List.of(new BirthdayWindow(1229, 1231), new BirthdayWindow(101, 105)),
+        BirthdayWindow.of(LocalDate.of(2026, 12, 29), 7));
+  }
+
+  @Test
+  public void leapDayBirthdaysCountOnFebruary28thInCommonYears() {
+    assertEquals(List.of(new BirthdayWindow(221, 229)),
+        BirthdayWindow.of(LocalDate.of(2026, 2, 21), 7));
+    assertEquals(List.of(new BirthdayWindow(222, 229)),
+        BirthdayWindow.of(LocalDate.of(2028, 2, 22), 7));
+    assertEquals(List.of(new BirthdayWindow(301, 301)),
+        BirthdayWindow.of(LocalDate.of(2026, 3, 1), 0));
+  }
+
+  @Test
+  public void fullYearWindowCoversEveryDay() {
+    assertEquals(List.of(new BirthdayWindow(101, 1231)),
+        BirthdayWindow.of(LocalDate.of(2026, 3, 1), 365));
+  }
+
+  @Test
+  public void negativeWindowIsRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> BirthdayWindow.of(LocalDate.of(2026, 3, 1), -1));
+  }
+}
@@ -0,0 +1,174 @@
+package com.example.clearsolutionstest.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.response.UserChangeEvent;
+import com.example.clearsolutionstest.response.UserChangeType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class UserChangeFeedTest {
+
+  private MeterRegistry meterRegistry;
+  private UserChangeFeed feed;
+
+  @BeforeEach
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    feed = new UserChangeFeed(meterRegistry, 3, 2, 10, Duration.ofMillis(100),
+        Duration.ofSeconds(15), Duration.ofMinutes(1), Duration.ofSeconds(10), Runnable::run);
+  }
+
+  @Test
+  public void readsEventsInOrderFromAnyHeldPosition() {
+    feed.publishCreated(user(10L));
+    feed.publishUpdated(user(10L));
+    feed.publishDeleted(10L);
+
+    List<UserChangeEvent> events = new ArrayList<>();
+    assertTrue(feed.read(1, 10, events));
+    assertEquals(List.of(UserChangeType.CREATED, UserChangeType.UPDATED, UserChangeType.DELETED),
+        events.stream().map(UserChangeEvent::getType).collect(Collectors.toList()));
+
+    events.clear();
+    assertTrue(feed.read(2, 1, events));
+    assertEquals(List.of(2L), sequences(events));
+
+    events.clear();
+    assertTrue(feed.read(4, 10, events));
+    assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void reportsOverwrittenPositions() {
+    for (long id = 1; id <= 6; id++) {
+      feed.publishCreated(user(id));
+    }
+
+    List<UserChangeEvent> events = new ArrayList<>();
+    assertFalse(feed.read(2, 10, events));
+    assertTrue(feed.read(3, 10, events));
+    assertEquals(List.of(3L, 4L, 5L, 6L), sequences(events));
+  }
+
+  @Test
+  public void resyncsSubscribersThatResumeFromAnUnknownPosition() {
+    for (long id = 1; id <= 6; id++) {
+      feed.publishCreated(user(id));
+    }
+    feed.subscribe(1L);
+    feed.subscribe(100L);
+    assertEquals(2, feed.subscriberCount());
+    assertThrows(IllegalStateException.class, () -> feed.subscribe(null));
+
+    feed.dispatch();
+
+    assertEquals(0, feed.subscriberCount());
+    assertEquals(2, meterRegistry.counter("users.changes.resyncs").count());
+  }
+
+  @Test
+  public void keepsSubscribersThatAreUpToDate() {
+    feed.subscribe(null);
+    feed.publishCreated(user(1L));
+
+    feed.dispatch();
+
+    assertEquals(1, feed.subscriberCount());
+    assertEquals(0, meterRegistry.counter("users.changes.resyncs").count());
+  }
+
+  @Test
+  public void disconnectsAStalledSubscriberWithoutHoldingUpOthers() throws Exception {
+    CountDownLatch unblock = new CountDownLatch(1);
+    List<String> delivered = new CopyOnWriteArrayList<>();
+    ExecutorService senders = Executors.newCachedThreadPool();
+    AtomicInteger emitters = new AtomicInteger();
+    feed = new UserChangeFeed(meterRegistry, 16, 2, 10, Duration.ofMillis(100),
+        Duration.ofSeconds(15), Duration.ofMinutes(1), Duration.ofMillis(50), senders) {
+      @Override
+      SseEmitter newEmitter(long timeoutMillis) {
+        boolean stalled = emitters.getAndIncrement() == 0;
+        return new SseEmitter(timeoutMillis) {
+          @Override
+          public void send(SseEventBuilder builder) throws IOException {
+            if (stalled) {
+              try {
+                unblock.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            } else {
+              delivered.add("event");
+            }
+          }
+        };
+      }
+    };
+    try {
+      feed.subscribe(null);
+      feed.subscribe(null);
+      feed.publishCreated(user(1L));
+      feed.dispatch();
+      awaitDelivered(delivered, 1);
+
+      feed.publishCreated(user(2L));
+      feed.dispatch();
+      awaitDelivered(delivered, 2);
+      assertEquals(0, meterRegistry.counter("users.changes.stalled-subscribers").count());
+
+      Thread.sleep(100);
+      feed.dispatch();
+      assertEquals(1, meterRegistry.counter("users.changes.stalled-subscribers").count());
+      assertEquals(2, feed.subscriberCount());
+
+      unblock.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (feed.subscriberCount() > 1 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, feed.subscriberCount());
+    } finally {
+      unblock.countDown();
+      senders.shutdownNow();
+    }
+  }
+
+  private static void awaitDelivered(List<String> delivered, int count)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (delivered.size() < count && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, delivered.size());
+  }
+
+  private static List<Long> sequences(List<UserChangeEvent> events) {
+    return events.stream().map(UserChangeEvent::getSequence).collect(Collectors.toList());
+  }
+
+  private static User user(Long id) {
+    User user = new User();
+    user.setId(id);
+    user.setEmail("user" + id + "@example.com");
+    return user;
+  }
+}
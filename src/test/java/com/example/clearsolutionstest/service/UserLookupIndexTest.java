@@ -0,0 +1,113 @@
+package com.example.clearsolutionstest.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserStore;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class UserLookupIndexTest {
+
+  private UserStore store;
+  private UserLookupIndex index;
+
+  @BeforeEach
+  public void setUp() {
+    store = mock(UserStore.class);
+    index = new UserLookupIndex(store, 3);
+    index.load();
+  }
+
+  @Test
+  public void findsUsersByNormalisedPrefixOfAnyField() {
+    index.index(user(1L, "john.smith@example.com", "John", "Smith"));
+    index.index(user(2L, "zoe@example.com", "Zoë", "Johnson"));
+    index.index(user(3L, "anna@example.com", "Anna", "Šmidt"));
+
+    assertEquals(List.of(1L, 2L), ids(index.lookup("JOH", 10)));
+    assertEquals(List.of(2L), ids(index.lookup(" zoe", 10)));
+    assertEquals(List.of(3L, 1L), ids(index.lookup("sm", 10)));
+    assertEquals(List.of(1L), ids(index.lookup("j", 1)));
+    assertThrows(IllegalArgumentException.class, () -> index.lookup("  ", 10));
+    verify(store, never()).lookupByPattern(any(), anyInt());
+  }
+
+  @Test
+  public void reindexingReplacesOldTermsAndRemoveDropsUser() {
+    index.index(user(1L, "john@example.com", "John", "Smith"));
+    index.index(user(1L, "john@example.com", "John", "Brown"));
+
+    assertTrue(index.lookup("smith", 10).isEmpty());
+    assertEquals(List.of(1L), ids(index.lookup("brown", 10)));
+
+    index.remove(1L);
+
+    assertTrue(index.lookup("john", 10).isEmpty());
+  }
+
+  @Test
+  public void fallsBackToDatabaseWhenCapacityIsExceeded() {
+    for (long id = 1; id <= 4; id++) {
+      index.index(user(id, "user" + id + "@example.com", "First", "Last_" + id));
+    }
+    UserLookupResult stored = new UserLookupResult(4L, "user4@example.com", "First", "Last_4");
+    when(store.lookupByPattern("last\\_4%", 10)).thenReturn(List.of(stored));
+
+    assertFalse(index.isComplete());
+    assertEquals(List.of(stored), index.lookup("Last_4", 10));
+
+    index.remove(4L);
+    index.remove(3L);
+    assertFalse(index.isComplete());
+  }
+
+  @Test
+  public void usesTheDatabaseUntilLoadedAndKeepsChangesMadeWhileLoading() {
+    index = new UserLookupIndex(store, 3);
+    UserLookupResult stored = new UserLookupResult(1L, "john@example.com", "John", "Smith");
+    when(store.lookupByPattern("john%", 10)).thenReturn(List.of(stored));
+    doAnswer(invocation -> {
+      assertEquals(List.of(stored), index.lookup("john", 10));
+      index.index(user(1L, "john@example.com", "John", "Brown"));
+      index.remove(2L);
+      Consumer<UserLookupResult> action = invocation.getArgument(0);
+      action.accept(stored);
+      action.accept(new UserLookupResult(2L, "jane@example.com", "Jane", "Smith"));
+      return null;
+    }).when(store).forEachLookupResult(any());
+
+    index.load();
+
+    assertTrue(index.isComplete());
+    assertTrue(index.lookup("smith", 10).isEmpty());
+    assertEquals(List.of(1L), ids(index.lookup("brown", 10)));
+  }
+
+  private static List<Long> ids(List<UserLookupResult> results) {
+    return results.stream().map(UserLookupResult::getId).collect(Collectors.toList());
+  }
+
+  private static User user(Long id, String email, String firstname, String lastname) {
+    User user = new User();
+    user.setId(id);
+    user.setEmail(email);
+    user.setFirstname(firstname);
+    user.setLastname(lastname);
+    return user;
+  }
+}
@@ -0,0 +1,79 @@
+package com.example.clearsolutionstest.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class UserSearchCoalescerTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  public void concurrentIdenticalSearchesShareOneExecution() throws Exception {
+    UserSearchCoalescer coalescer = coalescer(false);
+    AtomicInteger executions = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    List<Object> query = List.of("page", 1, 2);
+
+    CompletableFuture<Object> first = CompletableFuture.supplyAsync(
+        () -> coalescer.execute(query, () -> {
+          executions.incrementAndGet();
+          await(release);
+          return new Object();
+        }));
+    while (executions.get() == 0) {
+      Thread.onSpinWait();
+    }
+    CompletableFuture<Object> second = CompletableFuture.supplyAsync(
+        () -> coalescer.execute(query, () -> {
+          executions.incrementAndGet();
+          return new Object();
+        }));
+    while (meterRegistry.counter("users.search.collapsed", "source", "in-flight").count() == 0) {
+      Thread.onSpinWait();
+    }
+    release.countDown();
+
+    assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, executions.get());
+    assertEquals(0.5, coalescer.collapseRatio());
+  }
+
+  @Test
+  public void cachedResultsAreDroppedOnInvalidate() {
+    UserSearchCoalescer coalescer = coalescer(true);
+    AtomicInteger executions = new AtomicInteger();
+    List<Object> query = List.of("page", 1, 2);
+
+    coalescer.execute(query, executions::incrementAndGet);
+    coalescer.execute(query, executions::incrementAndGet);
+    assertEquals(1, executions.get());
+
+    coalescer.invalidate();
+    assertEquals(2, (int) coalescer.execute(query, executions::incrementAndGet));
+    assertEquals(1.0 / 3, coalescer.collapseRatio(), 1e-9);
+  }
+
+  private UserSearchCoalescer coalescer(boolean cacheEnabled) {
+    return new UserSearchCoalescer(Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMinutes(1)).build(), cacheEnabled, meterRegistry);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -5,22 +5,64 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.export.CsvUserExportWriter;
+import com.example.clearsolutionstest.pagination.UserSearchCursor;
+import com.example.clearsolutionstest.repository.BirthDateCount;
+import com.example.clearsolutionstest.repository.BirthYearCount;
 import com.example.clearsolutionstest.repository.UserRepository;
+import com.example.clearsolutionstest.request.DistributionBucketType;
+import com.example.clearsolutionstest.request.ExportFormat;
 import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.example.clearsolutionstest.response.DistributionBucket;
+import com.example.clearsolutionstest.response.KeysetSlice;
+import com.example.clearsolutionstest.response.UserBatchItemResult;
+import com.example.clearsolutionstest.response.UserBatchItemResult.Status;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @SpringBootTest
@@ -33,6 +75,27 @@ public class UserServiceTest {
   @MockBean
   private UserRepository userRepository;
 
+  @SpyBean
+  private BirthDateHistogram birthDateHistogram;
+
+  @Autowired
+  private Cache<Long, User> userCache;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private Cache<Integer, Long> birthYearCountCache;
+
+  @BeforeEach
+  public void setUp() {
+    userCache.invalidateAll();
+    birthYearCountCache.invalidateAll();
+  }
+
   @Test
   public void testCreateUser() {
     User user = new User();
@@ -44,6 +107,95 @@ public class UserServiceTest {
     verify(userRepository, times(1)).save(user);
   }
 
+  @Test
+  public void testCreateUserRecordsTheStoredBirthDate() {
+    User user = new User();
+    user.setBirthDate(new Date(90, 0, 1));
+    User stored = new User();
+    stored.setId(1L);
+    stored.setBirthDate(new java.sql.Date(90, 0, 2));
+    when(userRepository.save(user)).thenReturn(stored, (User) null);
+
+    userService.create(user);
+    userService.create(user);
+
+    verify(birthDateHistogram, times(1)).recordCreated(any());
+    verify(birthDateHistogram).recordCreated(stored.getBirthDate());
+  }
+
+  @Test
+  public void testServiceCallsAreTimed() {
+    User user = new User();
+    when(userRepository.save(user)).thenReturn(user);
+
+    double before = serviceCallCount("create");
+    userService.create(user);
+
+    assertEquals(before + 1, serviceCallCount("create"));
+  }
+
+  @Test
+  public void testCreateAllUsers() {
+    User valid = newValidUser("valid@example.com");
+    User invalid = new User();
+    User repeated = newValidUser("valid@example.com");
+    User taken = newValidUser("taken@example.com");
+
+    when(userRepository.findExistingEmails(anyCollection())).thenReturn(
+        Set.of("taken@example.com"));
+
+    List<UserBatchItemResult> results = userService.createAll(
+        List.of(valid, invalid, repeated, taken));
+
+    assertEquals(Status.CREATED, results.get(0).getStatus());
+    assertEquals(Status.INVALID, results.get(1).getStatus());
+    assertEquals(5, results.get(1).getErrors().size());
+    assertEquals(Status.DUPLICATE_EMAIL, results.get(2).getStatus());
+    assertEquals(Status.DUPLICATE_EMAIL, results.get(3).getStatus());
+    verify(userRepository, times(1)).saveAllAndFlush(List.of(valid));
+  }
+
+  @Test
+  public void testCreateAllUsersSplitsIntoBatches() {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      users.add(newValidUser("user" + i + "@example.com"));
+    }
+
+    List<UserBatchItemResult> results = userService.createAll(users);
+
+    assertEquals(250, results.size());
+    assertEquals(Status.CREATED, results.get(249).getStatus());
+    verify(userRepository, times(3)).saveAllAndFlush(anyList());
+  }
+
+  @Test
+  public void testGetUserIsCachedUntilUpdate() {
+    Long userId = 1L;
+    User existingUser = newValidUser("cached@example.com");
+    existingUser.setId(userId);
+    when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
+    when(userRepository.save(existingUser)).thenReturn(existingUser);
+
+    assertEquals(existingUser, userService.getUser(userId));
+    assertEquals(existingUser, userService.getUser(userId));
+    verify(userRepository, times(1)).findById(userId);
+
+    userService.update(userId, newValidUser("updated@example.com"));
+    userService.getUser(userId);
+    verify(userRepository, times(3)).findById(userId);
+    assertEquals(1, userService.getCacheStatistics().getHitCount());
+  }
+
+  @Test
+  public void testGetUserNotFound() {
+    when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+    assertThrows(NoSuchElementException.class, () -> userService.getUser(2L));
+    assertThrows(NoSuchElementException.class, () -> userService.getUser(2L));
+    verify(userRepository, times(2)).findById(2L);
+  }
+
   @Test
   public void testUpdateUser() {
     Long userId = 1L;
@@ -71,27 +223,57 @@ public class UserServiceTest {
 
     User existingUser = new User();
     existingUser.setId(userId);
+    existingUser.setAddress("New Address");
 
+    when(userRepository.updateNonRequiredData(userId, request, null)).thenReturn(1);
     when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-    when(userRepository.save(existingUser)).thenReturn(existingUser);
 
     User updatedUser = userService.updateUserNonRequiredData(userId, request);
 
     assertEquals(request.getAddress(), updatedUser.getAddress());
     assertNull(updatedUser.getPhoneNumber());
+    verify(userRepository, times(1)).updateNonRequiredData(userId, request, null);
     verify(userRepository, times(1)).findById(userId);
-    verify(userRepository, times(1)).save(existingUser);
+    verify(userRepository, times(0)).save(any(User.class));
+  }
+
+  @Test
+  public void testUpdateUserWithStaleVersion() {
+    Long userId = 1L;
+    User existingUser = newValidUser("current@example.com");
+    existingUser.setId(userId);
+    existingUser.setVersion(3L);
+    when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
+
+    assertThrows(OptimisticLockingFailureException.class,
+        () -> userService.update(userId, newValidUser("stale@example.com"), 2L));
+    verify(userRepository, times(0)).save(any(User.class));
+  }
+
+  @Test
+  public void testUpdateUserNonRequiredDataWithStaleVersion() {
+    Long userId = 1L;
+    UserUpdateNonRequiredDataRequest request = new UserUpdateNonRequiredDataRequest();
+    request.setAddress("New Address");
+    when(userRepository.updateNonRequiredData(userId, request, 2L)).thenReturn(0);
+    when(userRepository.existsById(userId)).thenReturn(true);
+
+    assertThrows(OptimisticLockingFailureException.class,
+        () -> userService.updateUserNonRequiredData(userId, request, 2L));
+
+    when(userRepository.existsById(userId)).thenReturn(false);
+    assertThrows(NoSuchElementException.class,
+        () -> userService.updateUserNonRequiredData(userId, request, 2L));
   }
 
   @Test
   public void testDeleteUser() {
     Long userId = 1L;
-    User userToDelete = new User();
-    userToDelete.setId(userId);
-    when(userRepository.findById(userId)).thenReturn(Optional.of(userToDelete));
+    when(userRepository.deleteUserById(userId)).thenReturn(1);
 
     assertDoesNotThrow(() -> userService.deleteUser(userId));
-    verify(userRepository, times(1)).deleteById(userId);
+    verify(userRepository, times(1)).deleteUserById(userId);
+    verify(userRepository, times(0)).findById(userId);
   }
 
   @Test
@@ -115,10 +297,10 @@ public class UserServiceTest {
   public void testDeleteUserNotFound() {
     Long userId = -1L;
 
-    when(userRepository.findById(userId)).thenReturn(Optional.empty());
+    when(userRepository.deleteUserById(userId)).thenReturn(0);
 
     assertThrows(NoSuchElementException.class, () -> userService.deleteUser(userId));
-    verify(userRepository, times(0)).deleteById(userId);
+    verify(userRepository, times(1)).deleteUserById(userId);
   }
 
   @Test
@@ -130,10 +312,10 @@ public class UserServiceTest {
     User existingUser = new User();
     existingUser.setId(userId);
     existingUser.setAddress("Old Address");
-    existingUser.setPhoneNumber("Old Phone Number");
+    existingUser.setPhoneNumber("123-456-7890");
 
+    when(userRepository.updateNonRequiredData(userId, request, null)).thenReturn(1);
     when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-    when(userRepository.save(any(User.class))).thenReturn(existingUser);
 
     User updatedUser = userService.updateUserNonRequiredData(userId, request);
 
@@ -148,13 +330,229 @@ public class UserServiceTest {
     UserUpdateNonRequiredDataRequest request = new UserUpdateNonRequiredDataRequest();
     request.setPhoneNumber("123-456-7890");
 
-    when(userRepository.findById(userId)).thenReturn(Optional.empty());
+    when(userRepository.updateNonRequiredData(userId, request, null)).thenReturn(0);
 
     NoSuchElementException exception = assertThrows(NoSuchElementException.class,
         () -> userService.updateUserNonRequiredData(userId, request));
     assertEquals("No user found", exception.getMessage());
 
-    verify(userRepository, times(0)).save(any(User.class));
+    verify(userRepository, times(0)).findById(userId);
   }
-}
 
+  @Test
+  public void testFindUsersByBirthDateRangeAfterCursor() {
+    Date fromDate = new Date(80, 0, 1);
+    Date toDate = new Date(100, 0, 1);
+    User first = newValidUser("first@example.com");
+    first.setId(7L);
+    User second = newValidUser("second@example.com");
+    second.setId(9L);
+
+    when(userRepository.findKeysetFirstPage(eq(fromDate), eq(toDate), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.of(0, 2), true));
+
+    KeysetSlice<User> page = userService.findUsersByBirthDateRangeAfter(fromDate, toDate, null, 2);
+
+    assertEquals(UserSearchCursor.of(second), UserSearchCursor.decode(page.getNextCursor()));
+
+    when(userRepository.findKeysetPageAfter(eq(fromDate), eq(toDate), any(Date.class), eq(9L),
+        any(Pageable.class))).thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 2), false));
+
+    KeysetSlice<User> next = userService.findUsersByBirthDateRangeAfter(fromDate, toDate,
+        page.getNextCursor(), 2);
+
+    assertNull(next.getNextCursor());
+    assertThrows(IllegalArgumentException.class,
+        () -> userService.findUsersByBirthDateRangeAfter(fromDate, toDate, "not-a-cursor", 2));
+  }
+
+  @Test
+  public void testCoalescedSearchesWaitWithoutAConnection() throws Exception {
+    Date fromDate = new Date(80, 0, 1);
+    Date toDate = new Date(81, 11, 31);
+    Pageable pageable = PageRequest.of(0, 17);
+    CountDownLatch leaderQuerying = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(userRepository.findUsersByBirthDateBetween(fromDate, toDate, pageable))
+        .thenAnswer(invocation -> {
+          leaderQuerying.countDown();
+          release.await(10, TimeUnit.SECONDS);
+          return new PageImpl<>(List.of(), pageable, 0);
+        });
+    HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+    double coalesced = meterRegistry.get("users.search.collapsed").tag("source", "in-flight")
+        .counter().count();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Page<User>> leader = executor.submit(
+          () -> userService.findUsersByBirthDateRange(fromDate, toDate, pageable));
+      assertTrue(leaderQuerying.await(10, TimeUnit.SECONDS));
+      int leaderConnections = pool.getActiveConnections();
+      Future<Page<User>> waiter = executor.submit(
+          () -> userService.findUsersByBirthDateRange(fromDate, toDate, pageable));
+      while (meterRegistry.get("users.search.collapsed").tag("source", "in-flight").counter()
+          .count() == coalesced) {
+        Thread.sleep(10);
+      }
+
+      assertEquals(leaderConnections, pool.getActiveConnections());
+      release.countDown();
+      assertEquals(leader.get(10, TimeUnit.SECONDS), waiter.get(10, TimeUnit.SECONDS));
+      verify(userRepository, times(1)).findUsersByBirthDateBetween(fromDate, toDate, pageable);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFindUsersByBirthDateRangeWithApproximateTotal() {
+    Date fromDate = new Date(80, 0, 1);
+    Date toDate = new Date(81, 11, 31);
+    Pageable pageable = PageRequest.of(0, 2);
+    List<User> users = List.of(newValidUser("a@example.com"), newValidUser("b@example.com"));
+    BirthYearCount year1980 = birthYearCount(1980, 100L);
+    BirthYearCount year1981 = birthYearCount(1981, 50L);
+    when(userRepository.findUserSliceByBirthDateBetween(fromDate, toDate, pageable))
+        .thenReturn(new SliceImpl<>(users, pageable, true));
+    when(userRepository.countUsersByBirthYear(any(Date.class), any(Date.class)))
+        .thenReturn(List.of(year1980, year1981));
+
+    assertEquals(150, userService.findUsersByBirthDateRangeWithApproximateTotal(fromDate, toDate,
+        pageable).getTotalElements());
+    assertEquals(150, userService.findUsersByBirthDateRangeWithApproximateTotal(fromDate, toDate,
+        pageable).getTotalElements());
+    verify(userRepository, times(1)).countUsersByBirthYear(any(Date.class), any(Date.class));
+    verify(userRepository, never()).findUsersByBirthDateBetween(any(Date.class), any(Date.class),
+        any(Pageable.class));
+  }
+
+  @Test
+  public void testFindUsersByBirthDateRangeWithApproximateTotalOnLastSlice() {
+    Date fromDate = new Date(80, 0, 1);
+    Date toDate = new Date(81, 11, 31);
+    Pageable pageable = PageRequest.of(3, 2);
+    when(userRepository.findUserSliceByBirthDateBetween(fromDate, toDate, pageable))
+        .thenReturn(new SliceImpl<>(List.of(newValidUser("a@example.com")), pageable, false));
+
+    assertEquals(7, userService.findUsersByBirthDateRangeWithApproximateTotal(fromDate, toDate,
+        pageable).getTotalElements());
+    verify(userRepository, never()).countUsersByBirthYear(any(Date.class), any(Date.class));
+  }
+
+  @Test
+  public void testFindUsersWithBirthdayWithinAcrossNewYear() {
+    User december = newValidUser("dec@example.com");
+    User january = newValidUser("jan@example.com");
+    when(userRepository.countByBirthMonthDayBetween(1230, 1231)).thenReturn(3L);
+    when(userRepository.countByBirthMonthDayBetween(101, 104)).thenReturn(4L);
+    when(userRepository.findByBirthMonthDayBetween(1230, 1231, 2, 2))
+        .thenReturn(List.of(december));
+    when(userRepository.findByBirthMonthDayBetween(101, 104, 0, 1))
+        .thenReturn(List.of(january));
+
+    Page<User> page = userService.findUsersWithBirthdayWithin(LocalDate.of(2026, 12, 30), 5,
+        PageRequest.of(1, 2));
+
+    assertEquals(List.of(december, january), page.getContent());
+    assertEquals(7, page.getTotalElements());
+  }
+
+  @Test
+  public void testGetBirthDateDistribution() {
+    Date fromDate = new Date(80, 0, 1);
+    Date toDate = new Date(100, 0, 1);
+    List<BirthDateCount> counts = List.of(birthDateCount(new Date(85, 4, 1), 2L),
+        birthDateCount(new Date(85, 4, 20), 3L), birthDateCount(new Date(86, 0, 2), 1L));
+    when(userRepository.countUsersByBirthDate(fromDate, toDate)).thenReturn(counts);
+
+    assertEquals(List.of(new DistributionBucket("1985", 5), new DistributionBucket("1986", 1)),
+        userService.getBirthDateDistribution(fromDate, toDate, DistributionBucketType.YEAR, 10));
+    assertEquals(List.of(new DistributionBucket("1985-05", 5),
+            new DistributionBucket("1986-01", 1)),
+        userService.getBirthDateDistribution(fromDate, toDate, DistributionBucketType.MONTH, 10));
+    assertThrows(IllegalArgumentException.class, () -> userService.getBirthDateDistribution(
+        fromDate, toDate, DistributionBucketType.AGE_BAND, 0));
+  }
+
+  @Test
+  public void testAgeBandBuckets() {
+    LocalDate today = LocalDate.of(2026, 10, 18);
+
+    assertEquals(40, DistributionBucketType.AGE_BAND.bucketOf(LocalDate.of(1986, 10, 18), today,
+        10));
+    assertEquals(35, DistributionBucketType.AGE_BAND.bucketOf(LocalDate.of(1986, 10, 19), today,
+        5));
+    assertEquals("30-39", DistributionBucketType.AGE_BAND.label(30, 10));
+  }
+
+  @Test
+  public void testFindUserFieldsByBirthDateRange() {
+    Date fromDate = new Date(80, 0, 1);
+    Date toDate = new Date(100, 0, 1);
+    Pageable pageable = PageRequest.of(0, 10);
+    Page<Map<String, Object>> page = new PageImpl<>(List.of(Map.of("id", 1L)), pageable, 1);
+    when(userRepository.findFieldsByBirthDateBetween(fromDate, toDate, List.of("id", "email"),
+        pageable)).thenReturn(page);
+
+    assertEquals(page, userService.findUserFieldsByBirthDateRange(fromDate, toDate,
+        List.of("id", "email", "id"), pageable));
+    assertThrows(IllegalArgumentException.class,
+        () -> userService.findUserFieldsByBirthDateRange(fromDate, toDate,
+            List.of("id", "version"), pageable));
+  }
+
+  @Test
+  public void testExportUsersByBirthDateRange() throws Exception {
+    Date fromDate = new Date(80, 0, 1);
+    Date toDate = new Date(100, 0, 1);
+    User user = newValidUser("john@example.com");
+    user.setId(3L);
+    user.setAddress("1 Main St, Springfield");
+
+    when(userRepository.streamUsersByBirthDateBetween(fromDate, toDate))
+        .thenAnswer(invocation -> Stream.of(user));
+    ByteArrayOutputStream csv = new ByteArrayOutputStream();
+    userService.exportUsersByBirthDateRange(fromDate, toDate, ExportFormat.CSV, csv);
+
+    assertEquals(CsvUserExportWriter.HEADER + "\n"
+            + "3,john@example.com,John,Doe,1990-01-01,\"1 Main St, Springfield\",\n",
+        csv.toString(StandardCharsets.UTF_8));
+
+    ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+    userService.exportUsersByBirthDateRange(fromDate, toDate, ExportFormat.NDJSON, ndjson);
+
+    String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(1, lines.length);
+    assertTrue(lines[0].contains("\"email\":\"john@example.com\""));
+  }
+
+  private double serviceCallCount(String method) {
+    return meterRegistry.find("users.service").tag("method", method).timers().stream()
+        .mapToLong(timer -> timer.count()).sum();
+  }
+
+  private static BirthDateCount birthDateCount(Date birthDate, long total) {
+    BirthDateCount count = mock(BirthDateCount.class);
+    when(count.getBirthDate()).thenReturn(birthDate);
+    when(count.getTotal()).thenReturn(total);
+    return count;
+  }
+
+  private static BirthYearCount birthYearCount(int year, long total) {
+    BirthYearCount count = mock(BirthYearCount.class);
+    when(count.getYear()).thenReturn(year);
+    when(count.getTotal()).thenReturn(total);
+    return count;
+  }
+
+  private User newValidUser(String email) {
+    User user = new User();
+    user.setEmail(email);
+    user.setFirstname("John");
+    user.setLastname("Doe");
+    user.setBirthDate(new Date(90, 0, 1));
+    return user;
+  }
+}
@@ -0,0 +1,190 @@
+package com.example.clearsolutionstest.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserStore;
+import com.example.clearsolutionstest.request.UserUpdateNonRequiredDataRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+
+public class UserUpdateBufferTest {
+
+  private UserStore store;
+  private Cache<Long, User> userCache;
+  private UserUpdateBuffer buffer;
+
+  @BeforeEach
+  public void setUp() {
+    store = mock(UserStore.class);
+    userCache = Caffeine.newBuilder().build();
+    buffer = new UserUpdateBuffer(store, userCache, mock(UserSearchCoalescer.class), true,
+        100, Duration.ofHours(1));
+  }
+
+  @Test
+  public void mergesPendingUpdatesPerUserIntoOneBatch() {
+    buffer.enqueue(1L, request("1 Main St", null));
+    buffer.enqueue(1L, request(null, "555-0100"));
+    buffer.enqueue(1L, request("2 Main St", null));
+    buffer.enqueue(2L, request(null, "555-0200"));
+
+    buffer.flush();
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<Map<Long, UserUpdateNonRequiredDataRequest>> batch =
+        ArgumentCaptor.forClass(Map.class);
+    verify(store, times(1)).batchUpdateNonRequiredData(batch.capture(),
+        eq(Map.of(1L, 3, 2L, 1)));
+    assertEquals(Map.of(1L, request("2 Main St", "555-0100"), 2L, request(null, "555-0200")),
+        batch.getValue());
+
+    buffer.flush();
+    verify(store, times(1)).batchUpdateNonRequiredData(anyMap(), anyMap());
+  }
+
+  @Test
+  public void readsSeePendingUpdatesUntilFlushed() {
+    User stored = user(1L, "1 Main St");
+    stored.setVersion(4L);
+    userCache.put(1L, stored);
+    buffer.enqueue(1L, request("2 Main St", null));
+
+    User read = buffer.applyPending(stored);
+
+    assertEquals("2 Main St", read.getAddress());
+    assertEquals(5L, read.getVersion());
+    assertEquals("1 Main St", stored.getAddress());
+
+    buffer.flush();
+
+    assertNull(userCache.getIfPresent(1L));
+    assertSame(stored, buffer.applyPending(stored));
+  }
+
+  @Test
+  public void flushingOneUserLeavesOthersPending() {
+    buffer.enqueue(1L, request("1 Main St", null));
+    buffer.enqueue(2L, request("2 Main St", null));
+
+    buffer.flush(1L);
+    buffer.flush(3L);
+
+    verify(store, times(1)).batchUpdateNonRequiredData(
+        Map.of(1L, request("1 Main St", null)), Map.of(1L, 1));
+    assertEquals("2 Main St", buffer.applyPending(user(2L, null)).getAddress());
+  }
+
+  @Test
+  public void failedFlushKeepsUpdatesUnderNewerOnes() {
+    buffer.enqueue(1L, request("1 Main St", "555-0100"));
+    when(store.batchUpdateNonRequiredData(anyMap(), anyMap()))
+        .thenThrow(new QueryTimeoutException("timeout"));
+
+    assertThrows(QueryTimeoutException.class, buffer::flush);
+    buffer.enqueue(1L, request("2 Main St", null));
+
+    User read = buffer.applyPending(user(1L, null));
+    assertEquals("2 Main St", read.getAddress());
+    assertEquals("555-0100", read.getPhoneNumber());
+  }
+
+  @Test
+  public void discardDropsPendingUpdate() {
+    buffer.enqueue(1L, request("1 Main St", null));
+
+    buffer.discard(1L);
+    buffer.flush();
+
+    verify(store, never()).batchUpdateNonRequiredData(anyMap(), anyMap());
+  }
+
+  @Test
+  public void everyMergedUpdateAdvancesTheVersion() {
+    User stored = user(1L, "1 Main St");
+    stored.setVersion(4L);
+
+    buffer.enqueue(1L, request("2 Main St", null));
+    assertEquals(5L, buffer.applyPending(stored).getVersion());
+    buffer.enqueue(1L, request("3 Main St", null));
+    assertEquals(6L, buffer.applyPending(stored).getVersion());
+  }
+
+  @Test
+  public void readsDuringAWriteSeeTheUpdateUntilTheCacheIsDropped() {
+    User stored = user(1L, "1 Main St");
+    userCache.put(1L, stored);
+    buffer.enqueue(1L, request("2 Main St", null));
+    when(store.batchUpdateNonRequiredData(anyMap(), anyMap())).thenAnswer(invocation -> {
+      assertEquals("2 Main St", buffer.applyPending(stored).getAddress());
+      return Map.of(1L, 1L);
+    });
+
+    buffer.flush();
+
+    assertNull(userCache.getIfPresent(1L));
+    assertSame(stored, buffer.applyPending(stored));
+  }
+
+  @Test
+  public void readsBetweenCommitAndCleanupCountEachChangeOnce() {
+    User stale = user(1L, "1 Main St");
+    stale.setVersion(4L);
+    User written = user(1L, "3 Main St");
+    written.setVersion(6L);
+    List<User> reads = new ArrayList<>();
+    userCache = Caffeine.newBuilder().executor(Runnable::run)
+        .removalListener((Long id, User user, RemovalCause cause) -> {
+          reads.add(buffer.applyPending(stale));
+          reads.add(buffer.applyPending(written));
+        })
+        .build();
+    buffer = new UserUpdateBuffer(store, userCache, mock(UserSearchCoalescer.class), true,
+        100, Duration.ofHours(1));
+    userCache.put(1L, stale);
+    buffer.enqueue(1L, request("2 Main St", null));
+    buffer.enqueue(1L, request("3 Main St", null));
+    when(store.batchUpdateNonRequiredData(anyMap(), anyMap())).thenReturn(Map.of(1L, 6L));
+
+    buffer.flush();
+
+    assertEquals(2, reads.size());
+    for (User read : reads) {
+      assertEquals("3 Main St", read.getAddress());
+      assertEquals(6L, read.getVersion());
+    }
+  }
+
+  private static UserUpdateNonRequiredDataRequest request(String address, String phoneNumber) {
+    UserUpdateNonRequiredDataRequest request = new UserUpdateNonRequiredDataRequest();
+    request.setAddress(address);
+    request.setPhoneNumber(phoneNumber);
+    return request;
+  }
+
+  private static User user(Long id, String address) {
+    User user = new User();
+    user.setId(id);
+    user.setAddress(address);
+    return user;
+  }
+}
@@ -0,0 +1,251 @@
+package com.example.clearsolutionstest.sharding;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.response.UserLookupResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class ShardedUserStoreTest {
+
+  private static final Date FROM = Date.valueOf("1980-01-01");
+  private static final Date TO = Date.valueOf("1999-12-31");
+
+  private ShardedUserStore store;
+  private List<String> urls;
+
+  @BeforeEach
+  public void setUp() {
+    String prefix = "jdbc:h2:mem:" + UUID.randomUUID() + "-";
+    urls = IntStream.range(0, 3).mapToObj(i -> prefix + i + ";DB_CLOSE_DELAY=-1")
+        .collect(Collectors.toList());
+    store = new ShardedUserStore(new SimpleMeterRegistry(), urls, "sa", "", 4,
+        Duration.ofSeconds(5));
+    store.start();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    store.stop();
+  }
+
+  @Test
+  public void testIdsAreUniqueAndNameTheirShard() {
+    List<User> users = newUsers(200);
+
+    boolean[] created = store.insert(users);
+
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < users.size(); i++) {
+      assertTrue(created[i]);
+      assertTrue(users.get(i).getId() > 0);
+      assertTrue(ids.add(users.get(i).getId()));
+      assertEquals(users.get(i).getEmail(),
+          store.findById(users.get(i).getId()).orElseThrow().getEmail());
+    }
+    assertTrue(users.stream().map(user -> store.shardOf(user.getId())).distinct().count() > 1);
+  }
+
+  @Test
+  public void testEmailsStayUniqueAcrossShards() {
+    store.insert(newUsers(10));
+    List<User> retried = List.of(newUser("user3@example.com", 1990), newUser("new@example.com",
+        1990));
+
+    assertArrayEquals(new boolean[] {false, true}, store.insert(retried));
+    assertEquals(Set.of("user3@example.com"),
+        store.findExistingEmails(List.of("user3@example.com", "missing@example.com")));
+    assertThrows(DataIntegrityViolationException.class,
+        () -> store.insert(newUser("user4@example.com", 1990)));
+  }
+
+  @Test
+  public void testPagesMatchASingleSortedTable() {
+    List<User> users = newUsers(150);
+    store.insert(users);
+
+    for (Sort sort : List.of(Sort.unsorted(), Sort.by("birthDate"),
+        Sort.by(Sort.Order.desc("birthDate"), Sort.Order.asc("lastname")),
+        Sort.by(Sort.Order.desc("email")))) {
+      List<User> expected = sorted(users, sort);
+      for (int page : new int[] {0, 1, 6}) {
+        Page<User> actual = store.findByBirthDateBetween(FROM, TO, PageRequest.of(page, 20, sort));
+
+        assertEquals(expected.size(), actual.getTotalElements());
+        assertEquals(ids(expected.subList(Math.min(page * 20, expected.size()),
+            Math.min(page * 20 + 20, expected.size()))), ids(actual.getContent()));
+      }
+    }
+
+    List<User> expected = sorted(users, Sort.unsorted());
+    Slice<User> middle = store.findSliceByBirthDateBetween(FROM, TO, PageRequest.of(1, 30));
+    Slice<User> last = store.findSliceByBirthDateBetween(FROM, TO, PageRequest.of(3, 30));
+    assertTrue(middle.hasNext());
+    assertEquals(ids(expected.subList(30, 60)), ids(middle.getContent()));
+    assertFalse(last.hasNext());
+    assertEquals(ids(expected.subList(90, expected.size())), ids(last.getContent()));
+  }
+
+  @Test
+  public void testKeysetWalksEveryShardInOrder() {
+    List<User> users = newUsers(90);
+    store.insert(users);
+
+    List<User> walked = new ArrayList<>();
+    List<User> rows = store.findByBirthDateBetweenAfter(FROM, TO, null, null, 25);
+    while (!rows.isEmpty()) {
+      walked.addAll(rows);
+      User last = rows.get(rows.size() - 1);
+      rows = store.findByBirthDateBetweenAfter(FROM, TO, last.getBirthDate(), last.getId(), 25);
+    }
+
+    assertEquals(ids(sorted(users, Sort.unsorted())), ids(walked));
+  }
+
+  @Test
+  public void testEmailChangesMoveTheClaimAndDeletesReleaseIt() {
+    List<User> users = newUsers(2);
+    store.insert(users);
+    User user = store.findById(users.get(0).getId()).orElseThrow();
+    String previousEmail = user.getEmail();
+
+    user.setEmail("user1@example.com");
+    assertThrows(DataIntegrityViolationException.class, () -> store.update(user, previousEmail));
+
+    user.setEmail("moved@example.com");
+    store.update(user, previousEmail);
+    assertEquals(Set.of("moved@example.com"),
+        store.findExistingEmails(List.of(previousEmail, "moved@example.com")));
+    assertEquals(1L, store.findById(user.getId()).orElseThrow().getVersion());
+
+    User stale = store.findById(user.getId()).orElseThrow();
+    stale.setVersion(0L);
+    assertThrows(OptimisticLockingFailureException.class,
+        () -> store.update(stale, "moved@example.com"));
+
+    assertEquals(1, store.delete(user.getId()));
+    assertEquals(0, store.delete(user.getId()));
+    assertTrue(store.findExistingEmails(List.of("moved@example.com")).isEmpty());
+  }
+
+  @Test
+  public void testBirthdayFieldAndLookupSearchesCoverEveryShard() {
+    List<User> users = newUsers(60);
+    store.insert(users);
+
+    List<User> birthdays = users.stream()
+        .filter(user -> user.getBirthMonthDay() >= 301 && user.getBirthMonthDay() <= 831)
+        .sorted(Comparator.comparing(User::getBirthMonthDay).thenComparing(User::getId))
+        .collect(Collectors.toList());
+    assertEquals(birthdays.size(), store.countByBirthMonthDayBetween(301, 831));
+    assertEquals(ids(birthdays.subList(5, 15)), ids(store.findByBirthMonthDayBetween(301, 831,
+        5, 10)));
+
+    Page<Map<String, Object>> fields = store.findFieldsByBirthDateBetween(FROM, TO,
+        List.of("email", "id"), PageRequest.of(0, 5));
+    List<User> expected = sorted(users, Sort.unsorted()).subList(0, 5);
+    assertEquals(List.of("email", "id"), List.copyOf(fields.getContent().get(0).keySet()));
+    assertEquals(ids(expected), fields.getContent().stream()
+        .map(values -> (Long) values.get("id")).collect(Collectors.toList()));
+
+    assertEquals(List.of("user50@example.com", "user51@example.com", "user52@example.com"),
+        store.lookupByPattern("user5%", 3).stream().map(UserLookupResult::getEmail)
+            .collect(Collectors.toList()));
+    List<UserLookupResult> all = new ArrayList<>();
+    store.forEachLookupResult(all::add);
+    assertEquals(users.size(), all.size());
+    assertEquals(users.size(), store.countByBirthDate().values().stream()
+        .mapToLong(Long::longValue).sum());
+  }
+
+  @Test
+  public void testClaimsLeftByFailedReleasesAreTakenOver() {
+    List<User> users = newUsers(2);
+    store.insert(users);
+    claimDirectly("orphan@example.com", 1_000_000L);
+    claimDirectly("former@example.com", users.get(1).getId());
+
+    assertArrayEquals(new boolean[] {true},
+        store.insert(List.of(newUser("orphan@example.com", 1990))));
+
+    User user = store.findById(users.get(0).getId()).orElseThrow();
+    String previousEmail = user.getEmail();
+    user.setEmail("former@example.com");
+    store.update(user, previousEmail);
+    assertEquals("former@example.com", store.findById(user.getId()).orElseThrow().getEmail());
+
+    User holder = store.findById(users.get(1).getId()).orElseThrow();
+    String holderEmail = holder.getEmail();
+    holder.setEmail("former@example.com");
+    assertThrows(DataIntegrityViolationException.class, () -> store.update(holder, holderEmail));
+  }
+
+  /** Leaves a claim behind the way a release that failed after its row write committed would. */
+  private void claimDirectly(String email, Long userId) {
+    String url = urls.get(Math.floorMod(email.hashCode(), urls.size()));
+    new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")).update(
+        "insert into user_emails (email, user_id) values (?, ?)", email, userId);
+  }
+
+  private static List<User> sorted(List<User> users, Sort sort) {
+    Comparator<User> order = Comparator.comparing(User::getBirthDate);
+    if (sort.getOrderFor("lastname") != null) {
+      order = Comparator.comparing(User::getBirthDate).reversed()
+          .thenComparing(User::getLastname);
+    } else if (sort.getOrderFor("email") != null) {
+      order = Comparator.comparing(User::getEmail).reversed();
+    } else if (sort.getOrderFor("birthDate") == null && sort.isSorted()) {
+      throw new IllegalArgumentException();
+    }
+    return users.stream()
+        .filter(user -> !user.getBirthDate().before(FROM) && !user.getBirthDate().after(TO))
+        .sorted(order.thenComparing(User::getId))
+        .collect(Collectors.toList());
+  }
+
+  private static List<Long> ids(List<User> users) {
+    return users.stream().map(User::getId).collect(Collectors.toList());
+  }
+
+  private static List<User> newUsers(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> newUser("user" + i + "@example.com", 1975 + i % 30))
+        .collect(Collectors.toList());
+  }
+
+  private static User newUser(String email, int birthYear) {
+    User user = new User();
+    user.setEmail(email);
+    user.setFirstname("Shard");
+    user.setLastname("Last" + email.length() % 3);
+    user.setBirthDate(Date.valueOf(LocalDate.of(birthYear, 1 + email.length() % 12, 10)));
+    return user;
+  }
+}
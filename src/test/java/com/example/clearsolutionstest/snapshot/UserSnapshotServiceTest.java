@@ -0,0 +1,143 @@
+package com.example.clearsolutionstest.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.example.clearsolutionstest.entity.User;
+import com.example.clearsolutionstest.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class UserSnapshotServiceTest {
+
+  @TempDir
+  Path directory;
+
+  private UserRepository repository;
+  private TransactionTemplate transactionTemplate;
+  private Path file;
+
+  @BeforeEach
+  public void setUp() {
+    repository = mock(UserRepository.class);
+    transactionTemplate = mock(TransactionTemplate.class);
+    doAnswer(invocation -> {
+      invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+      return null;
+    }).when(transactionTemplate).executeWithoutResult(any());
+    file = directory.resolve("users.snapshot");
+  }
+
+  @Test
+  public void exportedSnapshotRestoresTheSameUsers() throws IOException {
+    List<User> users = List.of(
+        user(3L, "john@example.com", "John", LocalDate.of(1990, 2, 28), "Main St, 1", 4L),
+        user(70L, "zoe@example.com", "Zoë", LocalDate.of(1969, 12, 31), null, null),
+        user(71L, "anna@example.com", "Anna", null, "", 0L));
+    doAnswer(invocation -> {
+      users.forEach(invocation.<Consumer<User>>getArgument(0));
+      return null;
+    }).when(repository).forEachUser(any());
+
+    UserSnapshotResult exported = service(2).export();
+    assertEquals(3, exported.getUsers());
+    assertEquals(Files.size(file), exported.getBytes());
+    assertFalse(Files.exists(directory.resolve("users.snapshot.tmp")));
+
+    List<List<User>> batches = new ArrayList<>();
+    doAnswer(invocation -> {
+      batches.add(new ArrayList<>(invocation.getArgument(0)));
+      return null;
+    }).when(repository).insertWithIds(any());
+    UserSnapshotResult restored = service(2).restore(file);
+
+    assertEquals(3, restored.getUsers());
+    assertEquals(List.of(2, 1), batches.stream().map(List::size).collect(Collectors.toList()));
+    List<User> restoredUsers = batches.stream().flatMap(List::stream)
+        .collect(Collectors.toList());
+    for (int i = 0; i < users.size(); i++) {
+      User expected = users.get(i);
+      User actual = restoredUsers.get(i);
+      assertEquals(expected.getId(), actual.getId());
+      assertEquals(expected.getEmail(), actual.getEmail());
+      assertEquals(expected.getFirstname(), actual.getFirstname());
+      assertEquals(expected.getAddress(), actual.getAddress());
+      assertEquals(expected.getVersion(), actual.getVersion());
+      assertEquals(expected.getBirthDate(), actual.getBirthDate());
+    }
+    assertEquals(228, restoredUsers.get(0).getBirthMonthDay());
+    assertNull(restoredUsers.get(2).getBirthMonthDay());
+    verify(repository).restartIdSequence(71L + 50);
+    verify(transactionTemplate, times(2)).executeWithoutResult(any());
+  }
+
+  @Test
+  public void restoreRejectsCorruptedSnapshots() throws IOException {
+    doAnswer(invocation -> {
+      for (long id = 1; id <= 3; id++) {
+        invocation.<Consumer<User>>getArgument(0).accept(
+            user(id, "john" + id + "@example.com", "John", LocalDate.of(1990, 1, 1), null, 0L));
+      }
+      return null;
+    }).when(repository).forEachUser(any());
+    service(10).export();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {'X'}), channel.size() - 3);
+    }
+    assertThrows(IllegalStateException.class, () -> service(1).restore(file));
+    verify(repository, never()).insertWithIds(any());
+    verify(repository, never()).restartIdSequence(any(Long.class));
+
+    Files.write(file, new byte[] {1, 2, 3});
+    assertThrows(IllegalStateException.class, () -> service(10).restore(file));
+  }
+
+  @Test
+  public void refusesToStartOnShardedStorage() {
+    assertThrows(IllegalStateException.class, () -> new UserSnapshotService(repository,
+        transactionTemplate, new SimpleMeterRegistry(), file.toString(), true, 10, true));
+  }
+
+  private UserSnapshotService service(int batchSize) {
+    return new UserSnapshotService(repository, transactionTemplate, new SimpleMeterRegistry(),
+        file.toString(), true, batchSize, false);
+  }
+
+  private static User user(Long id, String email, String firstname, LocalDate birthDate,
+      String address, Long version) {
+    User user = new User();
+    user.setId(id);
+    user.setEmail(email);
+    user.setFirstname(firstname);
+    user.setLastname("Smith");
+    user.setBirthDate(birthDate == null ? null : Date.valueOf(birthDate));
+    user.setAddress(address);
+    user.setVersion(version);
+    return user;
+  }
+}
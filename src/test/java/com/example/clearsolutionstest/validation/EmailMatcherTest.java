@@ -0,0 +1,78 @@
+package com.example.clearsolutionstest.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+public class EmailMatcherTest {
+
+  private static final List<String> VALID = List.of("john@example.com", "john.doe@example.com",
+      "john_doe@mail.example.org", "jo@ex-ample.co", "\"john\"@example.com",
+      "\"jo\"hn\"@example.com", "a+b@example.museum", "john@123.123.123.123",
+      "john@[123.123.123.123]", "john@123123", "john@[]", "john@", "JOHN@EXAMPLE.COM",
+      "jén@example.com", "12@example.com");
+
+  private static final List<String> INVALID = List.of("", "@", "john", "j@example.com",
+      "john@@example.com", "jo..hn@example.com", ".john@example.com", "john.@example.com",
+      "\"john@example.com", "john\"@example.com", "john@example", "john@example.c",
+      "john@example.abcdefg", "john@example..com", "john@-example.com", "john@example-com",
+      "john@exam1ple.com", "john@1234", "john@123.123.123.123.123", "john@[12.123]",
+      "jo hn@exa mple.com", "john@example.com.", "john@ex@ample.com");
+
+  private final EmailMatcher regex = new RegexEmailMatcher(RegexEmailMatcher.DEFAULT_REGEXP);
+  private final EmailMatcher singlePass = new SinglePassEmailMatcher();
+
+  @Test
+  public void validAddressesMatchBothEngines() {
+    for (String email : VALID) {
+      assertTrue(regex.matches(email), email);
+      assertTrue(singlePass.matches(email), email);
+    }
+  }
+
+  @Test
+  public void invalidAddressesMatchNeitherEngine() {
+    for (String email : INVALID) {
+      assertFalse(regex.matches(email), email);
+      assertFalse(singlePass.matches(email), email);
+    }
+    assertFalse(regex.matches(null));
+    assertFalse(singlePass.matches(null));
+  }
+
+  @Test
+  public void enginesAgreeOnRandomInput() {
+    char[] alphabet = {'a', 'Z', '_', '7', '.', '-', '@', '"', '[', ']', ' ', '\n', 'é'};
+    Random random = new Random(42);
+    StringBuilder builder = new StringBuilder();
+    for (int n = 0; n < 200_000; n++) {
+      builder.setLength(0);
+      int length = random.nextInt(14);
+      for (int i = 0; i < length; i++) {
+        builder.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+      if (random.nextBoolean()) {
+        builder.append(random.nextBoolean() ? "@example.com" : "@123.456");
+      }
+      String email = builder.toString();
+      assertEquals(regex.matches(email), singlePass.matches(email), email);
+    }
+  }
+
+  @Test
+  public void configuredPatternIsTheDefaultPattern() throws IOException {
+    Properties properties = PropertiesLoaderUtils.loadProperties(
+        new ClassPathResource("application.properties"));
+
+    assertEquals(RegexEmailMatcher.DEFAULT_REGEXP,
+        properties.getProperty("email.validation.pattern.regexp"));
+  }
+}
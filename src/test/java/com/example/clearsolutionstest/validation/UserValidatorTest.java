@@ -1,6 +1,7 @@
 package com.example.clearsolutionstest.validation;
 
 import com.example.clearsolutionstest.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.validation.BeanPropertyBindingResult;
@@ -8,19 +9,29 @@ import org.springframework.validation.Errors;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class UserValidatorTest {
 
   private UserValidator userValidator;
+  private SimpleMeterRegistry meterRegistry;
   private Errors errors;
   private User user;
 
   @BeforeEach
   public void setUp() {
-    userValidator = new UserValidator();
+    meterRegistry = new SimpleMeterRegistry();
+    userValidator = new UserValidator(new RegexEmailMatcher(RegexEmailMatcher.DEFAULT_REGEXP),
+        new BirthDateCutoffs(18, ZoneId.systemDefault(), Clock.systemUTC()), meterRegistry);
     user = new User();
     errors = new BeanPropertyBindingResult(user, "user");
 
@@ -63,4 +74,79 @@ public class UserValidatorTest {
     assertTrue(errors.hasErrors());
     assertEquals(5, errors.getErrorCount());
   }
+
+  @Test
+  public void validate_InvalidUser_RecordsMetrics() {
+    userValidator.validate(user, errors);
+
+    assertEquals(1, meterRegistry.get("users.validation").timer().count());
+    assertEquals(1, meterRegistry.get("users.validation.failures").tag("field", "email")
+        .tag("code", "user.email.invalid").counter().count());
+    assertEquals(2, meterRegistry.get("users.validation.failures").tag("field", "birthDate")
+        .counter().count());
+  }
+
+  @Test
+  public void check_InvalidUser_ReturnsViolationCodes() {
+    user.setFirstname("John");
+    user.setEmail("john@example.com");
+    user.setBirthDate(new Date(System.currentTimeMillis() + 2 * 24 * 60 * 60 * 1000L));
+
+    assertEquals(List.of(UserViolation.LASTNAME_INVALID, UserViolation.BIRTH_DATE_IN_FUTURE,
+        UserViolation.BIRTH_DATE_TOO_YOUNG), userValidator.check(user));
+  }
+
+  @Test
+  public void birthDateCutoffs_AdultFromEighteenthBirthday() {
+    ZoneId zone = ZoneId.of("Europe/Kyiv");
+    Clock clock = Clock.fixed(ZonedDateTime.of(2026, 2, 28, 23, 30, 0, 0, zone).toInstant(), zone);
+    BirthDateCutoffs cutoffs = new BirthDateCutoffs(18, zone, clock);
+
+    assertTrue(cutoffs.isAdult(toDate(LocalDate.of(2008, 2, 28), zone)));
+    assertFalse(cutoffs.isAdult(toDate(LocalDate.of(2008, 2, 29), zone)));
+    assertTrue(cutoffs.isNotInFuture(toDate(LocalDate.of(2026, 2, 28), zone)));
+    assertFalse(cutoffs.isNotInFuture(toDate(LocalDate.of(2026, 3, 1), zone)));
+    assertEquals(LocalDate.of(2008, 2, 28).toEpochDay(), cutoffs.adultCutoffEpochDay());
+  }
+
+  @Test
+  public void birthDateCutoffs_RollOverAtMidnight() {
+    ZoneId zone = ZoneId.of("Europe/Kyiv");
+    MutableClock clock = new MutableClock(
+        ZonedDateTime.of(2026, 2, 28, 23, 59, 0, 0, zone).toInstant());
+    BirthDateCutoffs cutoffs = new BirthDateCutoffs(18, zone, clock);
+    Date leapDayBirth = toDate(LocalDate.of(2008, 2, 29), zone);
+
+    assertFalse(cutoffs.isAdult(leapDayBirth));
+    clock.instant = clock.instant.plusSeconds(120);
+    assertTrue(cutoffs.isAdult(leapDayBirth));
+  }
+
+  private static Date toDate(LocalDate date, ZoneId zone) {
+    return Date.from(date.atStartOfDay(zone).toInstant());
+  }
+
+  private static class MutableClock extends Clock {
+
+    private Instant instant;
+
+    MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
 }